@@ -7,12 +7,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
@@ -54,6 +56,13 @@ public class ToDoItemBotController extends TelegramLongPollingBot {
 	private Map<Long, String> userRoles = new HashMap<>();
 	private static final int MAX_RETRIES = 3;
 
+	// Intentos de login por chat, para que los reintentos no consuman CPU en BCrypt
+	private static final int AUTH_ATTEMPTS_PER_MINUTE = 5;
+	private final Map<Long, TokenBucket> authAttempts = new ConcurrentHashMap<>();
+
+	// Thread-safe; no hace falta uno por verificacion
+	private static final BCryptPasswordEncoder PASSWORD_ENCODER = new BCryptPasswordEncoder();
+
 	public ToDoItemBotController(String botToken, String botName) {
 		super(botToken);
 		this.botToken = botToken;
@@ -560,6 +569,12 @@ public class ToDoItemBotController extends TelegramLongPollingBot {
 	}
 
 	private void handleAuthentication(long chatId, String email, String password) {
+		// Cada intento cuesta dos BCrypt (aqui y en el login del controller)
+		if (!authAttempts.computeIfAbsent(chatId, id -> new TokenBucket(AUTH_ATTEMPTS_PER_MINUTE, AUTH_ATTEMPTS_PER_MINUTE / 60.0)).tryConsume()) {
+			sendMessageWithRetry(chatId, "Too many login attempts. Please wait a minute and try again.", null);
+			showMainMenu(chatId);
+			return;
+		}
 		try {
 			Optional<Usuario> usuario = usuarioService.findByEmail(email);
 			if (usuario.isPresent()) {
@@ -605,9 +620,7 @@ public class ToDoItemBotController extends TelegramLongPollingBot {
 	private boolean verifyPassword(String rawPassword, String storedHash) {
 		try {
 			// Use Spring's BCrypt password encoder to verify the password
-			org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder encoder = 
-				new org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder();
-			return encoder.matches(rawPassword, storedHash);
+			return PASSWORD_ENCODER.matches(rawPassword, storedHash);
 		} catch (Exception e) {
 			logger.error("Error verifying password: {}", e.getMessage());
 			return false;
@@ -6,8 +6,10 @@ import java.time.OffsetDateTime;
 @Entity
 @Table(name = "TAREAS")
 public class Tarea {
+    // Same pooled sequence as the controller (TAREAS_SEQ, INCREMENT BY 50)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tareas_seq")
+    @SequenceGenerator(name = "tareas_seq", sequenceName = "TAREAS_SEQ", allocationSize = 50)
     @Column(name = "ID")
     private Long id;
 
@@ -48,6 +50,11 @@ public class Tarea {
     @Column(name = "TIEMPO_REAL")
     private Double tiempoReal;
 
+    // Same VERSION column as the controller, so bot edits are seen by its optimistic checks
+    @Version
+    @Column(name = "VERSION")
+    private Long version;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -144,4 +151,12 @@ public class Tarea {
     public void setTiempoReal(Double tiempoReal) {
         this.tiempoReal = tiempoReal;
     }
-} 
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
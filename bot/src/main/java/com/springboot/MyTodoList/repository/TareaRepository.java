@@ -18,13 +18,14 @@ public interface TareaRepository extends JpaRepository<Tarea, Long> {
     List<Tarea> findBySprintId(Long sprintId);
     List<Tarea> findByEstadoId(Long estadoId);
 
-    @Query("SELECT t.id, t.titulo, t.descripcion, t.fechaCreacion, e.nombre as estadoNombre " +
+    // The description comes back as a 200-character preview (VARCHAR2), without LOB locators
+    @Query("SELECT t.id, t.titulo, FUNCTION('DBMS_LOB.SUBSTR', t.descripcion, 200, 1), t.fechaCreacion, e.nombre as estadoNombre " +
            "FROM Tarea t " +
            "JOIN t.estado e " +
            "ORDER BY t.fechaCreacion DESC")
     List<Object[]> findAllWithEstado();
 
-    @Query("SELECT t.id, t.titulo, t.descripcion, t.fechaCreacion, e.nombre as estadoNombre, u.nombre as usuarioNombre " +
+    @Query("SELECT t.id, t.titulo, FUNCTION('DBMS_LOB.SUBSTR', t.descripcion, 200, 1), t.fechaCreacion, e.nombre as estadoNombre, u.nombre as usuarioNombre " +
            "FROM Tarea t " +
            "LEFT JOIN t.estado e " +
            "LEFT JOIN t.asignadoA u " +
@@ -1,5 +1,7 @@
 package com.springboot.MyTodoList.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,6 +14,7 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,6 +39,32 @@ public class KpiService {
     
     private String authToken;
     
+    // Tras un login fallido no se reintenta antes de este instante (ms), para no repetir un
+    // BCrypt en el controlador en cada consulta KPI; con 429 se respeta su Retry-After
+    private static final long LOGIN_BACKOFF_MS = 30000;
+    private volatile long nextLoginAttempt = 0;
+    
+    // Refresh token del login de servicio: con el se pide un access token nuevo a /api/auth/refresh
+    // este margen antes de que expire, sin volver a enviar la contraseña
+    private static final long REFRESH_MARGIN_MS = 60000;
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String REFRESH_COOKIE = "refreshToken";
+    private volatile String refreshToken;
+    private volatile long authTokenExpiresAt = 0; // 0 = desconocido
+    
+    // Ultima respuesta KPI por URL, para revalidar con If-None-Match en lugar de descargarla de nuevo
+    private final Map<String, CachedResponse> kpiResponses = new ConcurrentHashMap<>();
+    
+    private static final class CachedResponse {
+        private final String etag;
+        private final String body;
+        
+        private CachedResponse(String etag, String body) {
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+    
     public KpiService(RestTemplate restTemplate, 
                      @Value("${controller.service.url:http://controller:8080}") String controllerServiceUrl) {
         this.restTemplate = restTemplate;
@@ -112,6 +141,13 @@ public class KpiService {
             return true;
         }
         
+        if (System.currentTimeMillis() < nextLoginAttempt) {
+            logger.info("Skipping authentication, last attempt failed less than {} ms ago", LOGIN_BACKOFF_MS);
+            return false;
+        }
+        // Se adelanta el backoff y se anula si el login funciona
+        nextLoginAttempt = System.currentTimeMillis() + LOGIN_BACKOFF_MS;
+        
         try {
             String authUrl = controllerServiceUrl + "/api/auth/login";
             HttpHeaders headers = new HttpHeaders();
@@ -139,6 +175,8 @@ public class KpiService {
                         if (tokenStart > 9 && tokenEnd > tokenStart) {
                             this.authToken = responseBody.substring(tokenStart, tokenEnd);
                             logger.info("Authentication successful, token length: {}", authToken.length());
+                            nextLoginAttempt = 0;
+                            readRefreshData(response);
                             return true;
                         } else {
                             logger.error("Error parsing token from response: Invalid token position");
@@ -154,6 +192,9 @@ public class KpiService {
                 }
             } catch (HttpClientErrorException e) {
                 logger.error("Authentication HTTP client error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
+                if (e.getStatusCode().value() == 429) {
+                    nextLoginAttempt = System.currentTimeMillis() + retryAfterMs(e);
+                }
                 return false;
             } catch (HttpServerErrorException e) {
                 logger.error("Authentication HTTP server error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
@@ -168,12 +209,109 @@ public class KpiService {
         }
     }
     
+    // Retry-After de una respuesta 429 (segundos), o el backoff por defecto si no viene
+    private static long retryAfterMs(HttpClientErrorException e) {
+        String retryAfter = e.getResponseHeaders() != null
+            ? e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER) : null;
+        try {
+            return retryAfter != null ? Long.parseLong(retryAfter.trim()) * 1000 : LOGIN_BACKOFF_MS;
+        } catch (NumberFormatException ex) {
+            return LOGIN_BACKOFF_MS;
+        }
+    }
+    
+    // Guarda el refresh token (cookie de la respuesta de login) y la expiracion del access token
+    private void readRefreshData(ResponseEntity<String> response) {
+        String refresh = refreshCookie(response.getHeaders());
+        if (refresh != null) {
+            refreshToken = refresh;
+        }
+        try {
+            readExpiry(JSON.readTree(response.getBody()));
+        } catch (Exception e) {
+            logger.warn("Could not read token expiry from authentication response: {}", e.getMessage());
+        }
+    }
+    
+    // Valor de la cookie del refresh token en Set-Cookie; el controlador no lo envia en el cuerpo
+    private static String refreshCookie(HttpHeaders headers) {
+        List<String> cookies = headers.get(HttpHeaders.SET_COOKIE);
+        if (cookies == null) {
+            return null;
+        }
+        for (String cookie : cookies) {
+            if (cookie.startsWith(REFRESH_COOKIE + "=")) {
+                int fin = cookie.indexOf(';');
+                String valor = cookie.substring(REFRESH_COOKIE.length() + 1, fin >= 0 ? fin : cookie.length());
+                return valor.isEmpty() ? null : valor;
+            }
+        }
+        return null;
+    }
+    
+    private void readExpiry(JsonNode json) {
+        long expiresIn = json.path("expiresIn").asLong(0);
+        authTokenExpiresAt = expiresIn > 0 ? System.currentTimeMillis() + expiresIn * 1000 : 0;
+    }
+    
+    /**
+     * Pide un access token nuevo con el refresh token, sin BCrypt en el controlador. El
+     * controlador rota el refresh token en cada llamada, asi que se guarda el de la respuesta;
+     * es synchronized para que dos consultas no presenten el mismo token a la vez.
+     * @return true si se obtuvo un token nuevo
+     */
+    private synchronized boolean refreshAuthToken() {
+        String refresh = refreshToken;
+        if (refresh == null) {
+            return false;
+        }
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.COOKIE, REFRESH_COOKIE + "=" + refresh);
+            
+            ResponseEntity<String> response = restTemplate.exchange(
+                controllerServiceUrl + "/api/auth/refresh", HttpMethod.POST, new HttpEntity<>(headers), String.class);
+            
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                JsonNode json = JSON.readTree(response.getBody());
+                String token = json.path("token").asText(null);
+                String rotado = refreshCookie(response.getHeaders());
+                if (rotado != null) {
+                    refreshToken = rotado;
+                }
+                if (token != null && !token.isEmpty()) {
+                    this.authToken = token;
+                    readExpiry(json);
+                    logger.info("Auth token refreshed, token length: {}", token.length());
+                    return true;
+                }
+            }
+            logger.error("Token refresh failed with status: {}", response.getStatusCode());
+        } catch (HttpClientErrorException e) {
+            // Refresh token vencido o invalido (por ejemplo tras reiniciar el controlador): hace falta login
+            logger.warn("Token refresh rejected: {}", e.getStatusCode());
+            refreshToken = null;
+        } catch (Exception e) {
+            logger.error("Token refresh request error: {}", e.getMessage());
+        }
+        return false;
+    }
+    
     private HttpHeaders createAuthHeaders() {
         HttpHeaders headers = new HttpHeaders();
         
+        // Se renueva antes de que expire en lugar de esperar a que una consulta reciba 401
+        long expiresAt = authTokenExpiresAt;
+        if (authToken != null && expiresAt > 0 && System.currentTimeMillis() > expiresAt - REFRESH_MARGIN_MS) {
+            logger.info("Auth token expires in less than {} ms, refreshing", REFRESH_MARGIN_MS);
+            if (!refreshAuthToken()) {
+                authToken = null;
+            }
+        }
+        
         if (authToken == null || authToken.isEmpty()) {
-            logger.info("No auth token available, attempting to authenticate...");
-            if (!authenticate()) {
+            logger.info("No auth token available, attempting to refresh or authenticate...");
+            if (!refreshAuthToken() && !authenticate()) {
                 logger.error("Failed to obtain authentication token");
                 return headers;
             }
@@ -184,16 +322,38 @@ public class KpiService {
         return headers;
     }
     
+    /**
+     * GET condicional: envia el ETag de la ultima respuesta y, si el controlador
+     * responde 304, devuelve el cuerpo guardado como si fuera un 200
+     */
+    private ResponseEntity<String> getWithEtag(String url) {
+        HttpHeaders headers = createAuthHeaders();
+        CachedResponse cached = kpiResponses.get(url);
+        if (cached != null) {
+            headers.setIfNoneMatch(cached.etag);
+        }
+        
+        ResponseEntity<String> response = restTemplate.exchange(
+            url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        
+        if (response.getStatusCodeValue() == 304 && cached != null) {
+            logger.info("KPI data not modified, using cached response for {}", url);
+            return ResponseEntity.ok(cached.body);
+        }
+        String etag = response.getHeaders().getETag();
+        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null && etag != null) {
+            kpiResponses.put(url, new CachedResponse(etag, response.getBody()));
+        }
+        return response;
+    }
+    
     public String getKpiEquipoData() {
         try {
             logger.info("Fetching KPI data for teams from controller");
             String url = controllerServiceUrl + "/api/kpi";
             
-            HttpEntity<String> entity = new HttpEntity<>(createAuthHeaders());
-            
             try {
-                ResponseEntity<String> response = restTemplate.exchange(
-                    url, HttpMethod.GET, entity, String.class);
+                ResponseEntity<String> response = getWithEtag(url);
                 
                 if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                     logger.info("Successfully retrieved team KPI data");
@@ -224,11 +384,8 @@ public class KpiService {
             logger.info("Fetching KPI data for users from controller");
             String url = controllerServiceUrl + "/api/kpi/persona";
             
-            HttpEntity<String> entity = new HttpEntity<>(createAuthHeaders());
-            
             try {
-                ResponseEntity<String> response = restTemplate.exchange(
-                    url, HttpMethod.GET, entity, String.class);
+                ResponseEntity<String> response = getWithEtag(url);
                 
                 if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                     logger.info("Successfully retrieved user KPI data");
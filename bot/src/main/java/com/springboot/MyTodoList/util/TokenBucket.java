@@ -0,0 +1,31 @@
+package com.springboot.MyTodoList.util;
+
+/**
+ * Token bucket: hasta {@code capacity} acciones seguidas, recargado a {@code refillPerSecond}.
+ * Thread-safe; una instancia por clave limitada.
+ */
+public class TokenBucket {
+
+	private final double capacity;
+	private final double refillPerNano;
+	private double tokens;
+	private long lastRefill;
+
+	public TokenBucket(double capacity, double refillPerSecond) {
+		this.capacity = capacity;
+		this.refillPerNano = refillPerSecond / 1_000_000_000d;
+		this.tokens = capacity;
+		this.lastRefill = System.nanoTime();
+	}
+
+	public synchronized boolean tryConsume() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+		lastRefill = now;
+		if (tokens >= 1) {
+			tokens -= 1;
+			return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,61 @@
+#!/bin/bash
+# Mide cuantas sentencias SQL ejecuta el controller por request, leyendo las estadisticas de
+# Hibernate (hibernate.statements) antes y despues de repetir cada endpoint.
+#
+# Requiere una instancia con estadisticas activas. Para comparar con y sin cache de segundo nivel:
+#   sin cache: mvn spring-boot:run -Dspring-boot.run.arguments=--spring.jpa.properties.hibernate.generate_statistics=true
+#   con cache: mvn -Pl2cache spring-boot:run
+#
+# Uso: TOKEN=<jwt> bench/selects-per-request.sh [BASE_URL] [REPETICIONES] [ENDPOINT...]
+
+BASE_URL=${1:-http://localhost:8080}
+N=${2:-50}
+shift $(( $# < 2 ? $# : 2 ))
+ENDPOINTS=("$@")
+if [ ${#ENDPOINTS[@]} -eq 0 ]; then
+  ENDPOINTS=(/api/tasks /api/tareas/board /api/sprints /api/users /api/estados)
+fi
+
+if [ -z "$TOKEN" ]; then
+  echo "TOKEN no definido (JWT de /api/auth/login)" >&2
+  exit 1
+fi
+
+AUTH="Authorization: Bearer $TOKEN"
+
+# Valor actual de un contador de actuator, p. ej. metrica hibernate.statements status:prepared
+metrica() {
+  curl -sf -H "$AUTH" "$BASE_URL/actuator/metrics/$1?tag=$2" \
+    | sed -n 's/.*"statistic":"COUNT","value":\([0-9.E]*\).*/\1/p'
+}
+
+contar() {
+  local v
+  v=$(metrica "$1" "$2")
+  # Los contadores de cache no existen hasta el primer acceso
+  printf '%.0f' "${v:-0}"
+}
+
+if [ -z "$(metrica hibernate.statements status:prepared)" ]; then
+  echo "No hay metrica hibernate.statements: activar hibernate.generate_statistics" >&2
+  exit 1
+fi
+
+printf '%-24s %14s %12s %12s\n' "endpoint" "sql/request" "l2 hits" "l2 misses"
+for ep in "${ENDPOINTS[@]}"; do
+  # Una llamada previa para que la primera carga de la cache no cuente
+  curl -sf -o /dev/null -H "$AUTH" "$BASE_URL$ep" || { echo "$ep: error" >&2; continue; }
+
+  antes=$(contar hibernate.statements status:prepared)
+  hits_antes=$(contar hibernate.second.level.cache.requests result:hit)
+  fallos_antes=$(contar hibernate.second.level.cache.requests result:miss)
+  for ((i = 0; i < N; i++)); do
+    curl -sf -o /dev/null -H "$AUTH" "$BASE_URL$ep"
+  done
+  despues=$(contar hibernate.statements status:prepared)
+  hits=$(( $(contar hibernate.second.level.cache.requests result:hit) - hits_antes ))
+  fallos=$(( $(contar hibernate.second.level.cache.requests result:miss) - fallos_antes ))
+
+  printf '%-24s %14s %12s %12s\n' "$ep" \
+    "$(awk -v d=$((despues - antes)) -v n="$N" 'BEGIN { printf "%.2f", d / n }')" "$hits" "$fallos"
+done
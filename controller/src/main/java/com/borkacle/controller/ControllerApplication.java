@@ -16,6 +16,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.context.annotation.ComponentScan;
 
@@ -23,6 +24,7 @@ import org.springframework.context.annotation.ComponentScan;
 @EntityScan("com.borkacle.model")
 @EnableJpaRepositories("com.borkacle.repository")
 @ComponentScan(basePackages = "com.borkacle")
+@EnableScheduling
 public class ControllerApplication {
 
     private static final Logger log = LoggerFactory.getLogger(ControllerApplication.class);
@@ -1,7 +1,9 @@
 package com.borkacle.controller;
 
+import com.borkacle.model.EstadoCategoria;
 import com.borkacle.model.Sprint;
-import com.borkacle.model.Tarea;
+import com.borkacle.repository.TareaTablero;
+import com.borkacle.service.EstadoCategorias;
 import com.borkacle.service.SprintService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -22,6 +24,9 @@ public class SprintController {
     @Autowired
     private SprintService sprintService;
 
+    @Autowired
+    private EstadoCategorias estadoCategorias;
+
     // --- DTOs for structured response ---
     // Simple DTO for Task summary within a Sprint response
     public static class TaskSummaryDto {
@@ -55,6 +60,59 @@ public class SprintController {
         }
     }
 
+    // One burndown point per sprint day
+    public static class BurndownPointDto {
+        public LocalDate dia;
+        public double horasRestantes;
+        public long tareasRestantes;
+        public double horasRealesAcumuladas;
+        public double horasIdeales;
+
+        // From a SprintRepository.findBurndown row
+        public BurndownPointDto(Object[] row) {
+            this.dia = toLocalDate(row[0]);
+            this.horasRestantes = ((Number) row[1]).doubleValue();
+            this.tareasRestantes = ((Number) row[2]).longValue();
+            this.horasRealesAcumuladas = ((Number) row[3]).doubleValue();
+            this.horasIdeales = ((Number) row[4]).doubleValue();
+        }
+    }
+
+    // Velocity of one sprint, with the 3-sprint moving average of completed hours
+    public static class VelocityDto {
+        public Long sprintId;
+        public String nombre;
+        public LocalDate fechaInicio;
+        public LocalDate fechaFin;
+        public double horasCompletadas;
+        public double horasPlaneadas;
+        public double horasReales;
+        public long tareasCompletadas;
+        public long tareasTotales;
+        public double promedioMovil;
+
+        // From a SprintRepository.findVelocity row
+        public VelocityDto(Object[] row) {
+            this.sprintId = ((Number) row[0]).longValue();
+            this.nombre = (String) row[1];
+            this.fechaInicio = toLocalDate(row[2]);
+            this.fechaFin = toLocalDate(row[3]);
+            this.horasCompletadas = ((Number) row[4]).doubleValue();
+            this.horasPlaneadas = ((Number) row[5]).doubleValue();
+            this.horasReales = ((Number) row[6]).doubleValue();
+            this.tareasCompletadas = ((Number) row[7]).longValue();
+            this.tareasTotales = ((Number) row[8]).longValue();
+            this.promedioMovil = ((Number) row[9]).doubleValue();
+        }
+    }
+
+    // Native queries return Oracle DATE columns as java.sql.Timestamp
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Timestamp) return ((java.sql.Timestamp) value).toLocalDateTime().toLocalDate();
+        if (value instanceof java.sql.Date) return ((java.sql.Date) value).toLocalDate();
+        return (LocalDate) value;
+    }
+
     // New DTO for creating a sprint
     public static class CreateSprintRequest {
         public String nombre;
@@ -69,37 +127,35 @@ public class SprintController {
         // Fetch the sprint details
         Sprint sprint = sprintService.showSprintDetails(sprintId);
 
-        // Fetch associated tasks
-        List<Tarea> tasks = sprintService.findTasksBySprintId(sprintId);
+        // Fetch associated tasks (board cards only; the full description is in GET /api/tasks/{id})
+        List<TareaTablero> tasks = sprintService.findTableroBySprintId(sprintId);
 
         // Organizar las tareas por estado
         Map<String, List<Map<String, Object>>> columns = new LinkedHashMap<>();
-        columns.put("todo", new ArrayList<>());
-        columns.put("inProgress", new ArrayList<>());
-        columns.put("review", new ArrayList<>());
-        columns.put("blocked", new ArrayList<>());
-        columns.put("done", new ArrayList<>());
-        columns.put("cancelled", new ArrayList<>());
+        for (EstadoCategoria categoria : EstadoCategoria.values()) {
+            columns.put(categoria.getColumna(), new ArrayList<>());
+        }
 
         // Mapear las tareas a sus columnas correspondientes
-        for (Tarea task : tasks) {
+        for (TareaTablero task : tasks) {
             Map<String, Object> taskMap = new LinkedHashMap<>();
             taskMap.put("id", task.getId());
+            taskMap.put("version", task.getVersion());
             taskMap.put("title", task.getTitulo());
             taskMap.put("type", task.getTipo() != null ? task.getTipo().toLowerCase() : "task");
-            taskMap.put("priority", mapPriority(task.getPrioridad() != null ? task.getPrioridad().getId() : null));
-            taskMap.put("description", task.getDescripcion());
+            taskMap.put("priority", mapPriority(task.getPrioridadId()));
+            taskMap.put("description", task.getDescripcionPreview());
             
             // Mapear el asignado si existe
             if (task.getAsignadoA() != null) {
                 Map<String, Object> assignee = new LinkedHashMap<>();
-                assignee.put("name", task.getAsignadoA().getNombre());
-                assignee.put("initials", getInitials(task.getAsignadoA().getNombre()));
+                assignee.put("name", task.getAsignadoA());
+                assignee.put("initials", getInitials(task.getAsignadoA()));
                 taskMap.put("assignee", assignee);
             }
 
             // Determinar la columna basada en el estado
-            String columnKey = mapEstadoToColumn(task.getEstado() != null ? task.getEstado().getNombre() : null);
+            String columnKey = estadoCategorias.categoria(task.getEstadoId()).getColumna();
             columns.get(columnKey).add(taskMap);
         }
 
@@ -115,20 +171,6 @@ public class SprintController {
         return ResponseEntity.ok(response);
     }
 
-    private String mapEstadoToColumn(String estado) {
-        if (estado == null) return "todo";
-        
-        switch (estado.toLowerCase()) {
-            case "completado": return "done";
-            case "en proceso": return "inProgress";
-            case "pendiente": return "todo";
-            case "en revisión": return "review";
-            case "bloqueado": return "blocked";
-            case "cancelado": return "cancelled";
-            default: return "todo";
-        }
-    }
-
     private String mapPriority(Long prioridadId) {
         if (prioridadId == null) return "medium";
         
@@ -155,6 +197,35 @@ public class SprintController {
         return (parts[0].charAt(0) + "" + parts[parts.length - 1].charAt(0)).toUpperCase();
     }
 
+    // --- Burndown (computed in the database, one row per day) --- //
+    @GetMapping("/{sprintId}/burndown")
+    public ResponseEntity<List<BurndownPointDto>> getBurndown(@PathVariable Long sprintId) {
+        try {
+            List<BurndownPointDto> points = sprintService.getBurndown(sprintId).stream()
+                    .map(BurndownPointDto::new)
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok(points);
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("Sprint not found")) {
+                return ResponseEntity.notFound().build();
+            }
+            throw e;
+        }
+    }
+
+    // --- Velocity of the last N sprints (computed in the database, one row per sprint) --- //
+    @GetMapping("/velocity")
+    public ResponseEntity<List<VelocityDto>> getVelocity(@RequestParam(defaultValue = "10") int limite,
+                                                         @RequestParam(required = false) Long equipoId) {
+        if (limite < 1 || limite > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<VelocityDto> velocity = sprintService.getVelocity(limite, equipoId).stream()
+                .map(VelocityDto::new)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(velocity);
+    }
+
     // --- Get All Sprints with Tasks (New) --- //
     @GetMapping
     public ResponseEntity<List<SprintWithTasksDto>> getAllSprintsWithTasks() {
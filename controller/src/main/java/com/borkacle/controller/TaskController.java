@@ -1,17 +1,29 @@
 package com.borkacle.controller;
 
+import com.borkacle.model.Prioridad;
 import com.borkacle.model.Tarea;
+import com.borkacle.repository.TareaDetalle;
+import com.borkacle.repository.TareaResumen;
+import com.borkacle.service.BusquedaTareas;
 import com.borkacle.service.TareaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map; // For simple request bodies
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,9 +32,17 @@ public class TaskController {
 
     private static final Logger logger = LoggerFactory.getLogger(TaskController.class);
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 1000;
+
     @Autowired
     private TareaService tareaService;
 
+    @Autowired
+    private BusquedaTareas busquedaTareas;
+
     // --- DTOs (Consider creating separate DTO classes for cleaner request/response handling) --- //
     // Example DTO for creating a task
     public static class CreateTaskRequest {
@@ -47,6 +67,30 @@ public class TaskController {
         public Long userId; // Optional - for user assignment
     }
 
+    // DTO for PUT /api/tasks/bulk: the fields that are not null are set on every task in ids
+    public static class BulkUpdateRequest {
+        public List<Long> ids;
+        public Long sprintId; // Optional
+        public Long estadoId; // Optional
+        public Long userId; // Optional
+        public Long prioridadId; // Optional
+    }
+
+    // Per-item result of POST /api/tasks/batch, in request order
+    public static class BatchItemResult {
+        public int index;
+        public Long id;
+        public String status; // "created" or "invalid"
+        public String error;
+
+        BatchItemResult(int index, Long id, String status, String error) {
+            this.index = index;
+            this.id = id;
+            this.status = status;
+            this.error = error;
+        }
+    }
+
     // New DTO for simplified task list response
     public static class TaskSummaryListDto {
         public Long id;
@@ -68,6 +112,18 @@ public class TaskController {
             this.sprintNombre = tarea.getSprint() != null ? tarea.getSprint().getNombre() : null;
             this.fechaCreacion = tarea.getFechaCreacion();
         }
+
+        // From a list projection (no managed entity involved)
+        public TaskSummaryListDto(TareaResumen resumen) {
+            this.id = resumen.getId();
+            this.titulo = resumen.getTitulo();
+            this.estado = resumen.getEstado();
+            this.prioridad = resumen.getPrioridad();
+            this.asignadoA = resumen.getAsignadoA();
+            this.sprintId = resumen.getSprintId();
+            this.sprintNombre = resumen.getSprintNombre();
+            this.fechaCreacion = resumen.getFechaCreacion();
+        }
     }
 
     // New DTO for detailed task response
@@ -100,6 +156,22 @@ public class TaskController {
             this.tiempoEstimado = tarea.getTiempoEstimado();
             this.tiempoReal = tarea.getTiempoReal();
         }
+
+        // From the detail projection (no managed entity involved)
+        public TaskDetailDto(TareaDetalle detalle) {
+            this.id = detalle.getId();
+            this.titulo = detalle.getTitulo();
+            this.descripcion = detalle.getDescripcion();
+            this.estado = detalle.getEstado();
+            this.prioridad = detalle.getPrioridad();
+            this.asignadoA = detalle.getAsignadoA();
+            this.proyectoId = detalle.getProyectoId();
+            this.sprint = detalle.getSprint();
+            this.fechaCreacion = detalle.getFechaCreacion();
+            this.fechaActualizacion = detalle.getFechaActualizacion();
+            this.tiempoEstimado = detalle.getTiempoEstimado();
+            this.tiempoReal = detalle.getTiempoReal();
+        }
     }
 
     // --- Add Task --- //
@@ -119,6 +191,61 @@ public class TaskController {
         return ResponseEntity.status(HttpStatus.CREATED).body(nuevaTarea);
     }
 
+    // --- Add Tasks in batch --- //
+    // Body is an array of CreateTaskRequest. Valid items are inserted in one transaction using
+    // JDBC batches; invalid items are reported back and skipped. If the insert itself fails,
+    // nothing is created.
+    @PostMapping("/batch")
+    public ResponseEntity<?> addTasks(@RequestBody List<CreateTaskRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At least one task is required"));
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_BATCH_SIZE + " tasks per batch"));
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(requests.size());
+        List<Tarea> borradores = new ArrayList<>();
+        List<BatchItemResult> pendientes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateTaskRequest request = requests.get(i);
+            if (request == null || request.titulo == null || request.titulo.isEmpty()) {
+                results.add(new BatchItemResult(i, null, "invalid", "titulo is required"));
+                continue;
+            }
+            Tarea tarea = new Tarea();
+            tarea.setTitulo(request.titulo);
+            tarea.setDescripcion(request.descripcion);
+            tarea.setTiempoEstimado(request.tiempoEstimado);
+            tarea.setProyectoId(request.proyectoId);
+            if (request.prioridadId != null) {
+                // Only the id; the service resolves each distinct priority once
+                Prioridad prioridad = new Prioridad();
+                prioridad.setId(request.prioridadId);
+                tarea.setPrioridad(prioridad);
+            }
+            BatchItemResult result = new BatchItemResult(i, null, "created", null);
+            borradores.add(tarea);
+            pendientes.add(result);
+            results.add(result);
+        }
+
+        if (!borradores.isEmpty()) {
+            try {
+                List<Tarea> creadas = tareaService.createTareas(borradores);
+                for (int i = 0; i < creadas.size(); i++) {
+                    pendientes.get(i).id = creadas.get(i).getId();
+                }
+            } catch (Exception e) {
+                logger.error("Error creating batch of {} tasks: {}", borradores.size(), e.getMessage(), e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error creating tasks: " + e.getMessage()));
+            }
+        }
+        logger.info("Batch create: {} created, {} invalid", borradores.size(), requests.size() - borradores.size());
+        return ResponseEntity.status(HttpStatus.CREATED).body(results);
+    }
+
     // --- Assign User --- //
     // Expecting a request body like: {"userId": 123}
     @PutMapping("/{taskId}/assignUser")
@@ -176,7 +303,7 @@ public class TaskController {
         try {
             logger.info("Received edit request for task {}: {}", taskId, request);
             
-            // First update the task with the provided fields
+            // Fields and user assignment in one write
         Tarea tareaActualizada = tareaService.updateTask(
             taskId,
             request.titulo,
@@ -187,25 +314,13 @@ public class TaskController {
             request.proyectoId,
             request.sprintId,
                 request.tiempoReal,
-                request.tipo
+                request.tipo,
+                request.userId
             );
             
             if (tareaActualizada == null) {
                 return ResponseEntity.notFound().build();
             }
-
-            // If userId is provided, assign the user
-            if (request.userId != null) {
-                logger.info("Assigning user {} to task {}", request.userId, taskId);
-                tareaActualizada = tareaService.assignUser(taskId, request.userId);
-                if (tareaActualizada == null) {
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(Map.of("error", "Failed to assign user to task"));
-                }
-            }
-
-            // Save the task to ensure all changes are persisted
-            tareaActualizada = tareaService.save(tareaActualizada);
             return ResponseEntity.ok(new TaskDetailDto(tareaActualizada));
         } catch (Exception e) {
             logger.error("Error updating task {}: {}", taskId, e.getMessage(), e);
@@ -214,23 +329,151 @@ public class TaskController {
         }
     }
 
+    // --- Patch Task --- //
+    // Only the fields present (non-null) are written, in a single UPDATE without reading the
+    // task first. Unlike PUT, a missing descripcion is left as is. Unknown task or unknown
+    // estado/prioridad/sprint/user -> 404. Returns 204; GET /{taskId} for the new values.
+    @PatchMapping("/{taskId}")
+    public ResponseEntity<?> patchTask(@PathVariable Long taskId, @RequestBody EditTaskRequest request) {
+        try {
+            tareaService.patchTask(taskId, request.titulo, request.descripcion, request.tiempoEstimado,
+                request.estadoId, request.prioridadId, request.proyectoId, request.sprintId,
+                request.tiempoReal, request.tipo, request.userId);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+            }
+            logger.error("Error patching task {}: {}", taskId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Error updating task: " + e.getMessage()));
+        }
+    }
+
+    // --- Bulk Update --- //
+    // One set-based UPDATE per 1000 ids instead of one request per task,
+    // e.g. {"ids": [1, 2, 3], "sprintId": 7}. Ids that do not exist are simply not counted.
+    @PutMapping("/bulk")
+    public ResponseEntity<?> bulkUpdate(@RequestBody BulkUpdateRequest request) {
+        if (request.ids == null || request.ids.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "ids is required"));
+        }
+        if (request.sprintId == null && request.estadoId == null && request.userId == null && request.prioridadId == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At least one of sprintId, estadoId, userId or prioridadId is required"));
+        }
+        Set<Long> ids = new LinkedHashSet<>(request.ids);
+        ids.remove(null);
+        try {
+            int updated = tareaService.bulkUpdate(ids, request.sprintId, request.estadoId, request.userId, request.prioridadId);
+            return ResponseEntity.ok(Map.of("requested", ids.size(), "updated", updated));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+            }
+            logger.error("Error in bulk update of {} tasks: {}", ids.size(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Error updating tasks: " + e.getMessage()));
+        }
+    }
+
     // --- Get Task by ID (Updated to return detailed DTO) --- //
     @GetMapping("/{taskId}")
     public ResponseEntity<TaskDetailDto> getTaskById(@PathVariable Long taskId) {
-        return tareaService.findById(taskId)
-            .map(tarea -> ResponseEntity.ok(new TaskDetailDto(tarea))) // Map to new DTO
+        return tareaService.findDetalleById(taskId)
+            .map(detalle -> ResponseEntity.ok(new TaskDetailDto(detalle))) // Projection, not the entity
             .orElse(ResponseEntity.notFound().build());
     }
 
-    // --- Get All Tasks (Existing - uses TaskSummaryListDto) --- //
+    // --- Get Tasks, one keyset page at a time (uses TaskSummaryListDto) --- //
+    // Newest first, ordered by (fechaCreacion, id); tasks without fechaCreacion come last, by id.
+    // When there are more rows, the X-Next-Cursor header carries the cursor for the next page.
+    // All filters are optional and applied in SQL.
     @GetMapping
-    public ResponseEntity<List<TaskSummaryListDto>> getAllTasks() {
-        List<Tarea> tareas = tareaService.findAll();
-        // Map to DTO
-        List<TaskSummaryListDto> tareaDtos = tareas.stream()
-                                                  .map(TaskSummaryListDto::new)
-                                                  .collect(Collectors.toList());
-        return ResponseEntity.ok(tareaDtos);
+    public ResponseEntity<?> getAllTasks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) Long estadoId,
+            @RequestParam(required = false) Long prioridadId,
+            @RequestParam(required = false) Long sprintId,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String tipo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        if (limit < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be positive"));
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+
+        OffsetDateTime cursorFecha = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                // An empty date means the cursor is already in the tasks without fechaCreacion
+                cursorFecha = parts[0].isEmpty() ? null : OffsetDateTime.parse(parts[0]);
+                cursorId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+            }
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        List<TareaResumen> rows = tareaService.findResumenesPagina(
+            cursorFecha, cursorId, estadoId, prioridadId, sprintId, userId, tipo,
+            desde != null ? desde.atStartOfDay(zone).toOffsetDateTime() : null,
+            hasta != null ? hasta.plusDays(1).atStartOfDay(zone).toOffsetDateTime() : null,
+            pageSize + 1);
+
+        // One extra row tells whether there is a next page
+        boolean hasMore = rows.size() > pageSize;
+        List<TaskSummaryListDto> tareaDtos = rows.stream()
+                                                 .limit(pageSize)
+                                                 .map(TaskSummaryListDto::new)
+                                                 .collect(Collectors.toList());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (hasMore) {
+            TaskSummaryListDto last = tareaDtos.get(tareaDtos.size() - 1);
+            String next = (last.fechaCreacion != null ? last.fechaCreacion.toString() : "") + "|" + last.id;
+            response.header(NEXT_CURSOR_HEADER,
+                Base64.getUrlEncoder().withoutPadding().encodeToString(next.getBytes(StandardCharsets.UTF_8)));
+        }
+        return response.body(tareaDtos);
+    }
+
+    // --- Search Tasks --- //
+    // Full-text search over titulo and descripcion, served from the in-memory index (BusquedaTareas).
+    // Every word must match, as a whole word or as a prefix; results are ranked by relevance and
+    // paged like GET /api/tasks, with the cursor for the next page in X-Next-Cursor.
+    @GetMapping("/search")
+    public ResponseEntity<?> searchTasks(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "q is required"));
+        }
+        if (limit < 1) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be positive"));
+        }
+        if (!busquedaTareas.isDisponible()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", "Search index is not loaded yet"));
+        }
+
+        BusquedaTareas.Pagina pagina;
+        try {
+            pagina = busquedaTareas.buscar(q, cursor, Math.min(limit, MAX_PAGE_SIZE));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
+        List<TaskSummaryListDto> tareaDtos = tareaService.findResumenesByIds(pagina.getTareaIds()).stream()
+                                                        .map(TaskSummaryListDto::new)
+                                                        .collect(Collectors.toList());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, pagina.getSiguienteCursor());
+        }
+        return response.body(tareaDtos);
     }
 
     // --- New Endpoint to change Estado (using /assignPriority path) --- //
@@ -0,0 +1,112 @@
+package com.borkacle.controller.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+// Limits applied by RateLimitFilter. Each route is an Ant pattern; the first one that matches
+// the request path wins, and paths that match none use the default limit.
+@Configuration
+@ConfigurationProperties(prefix = "ratelimit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    // Buckets kept in memory (one per user and route); see RateLimitFilter
+    private int maxKeys = 100000;
+    private Limit defaultLimit = new Limit(120, 20);
+    private List<Route> routes = new ArrayList<>(List.of(
+            new Route("/api/kpi/**", 30, 2),
+            new Route("/api/tasks/**", 60, 10)));
+    // Not limited here: /api/auth has its own per-email/IP limiter
+    private List<String> excluded = new ArrayList<>(List.of("/api/auth/**", "/api/health", "/actuator/**"));
+
+    public static class Limit {
+        private double capacity;
+        private double refillPerSecond;
+
+        public Limit() {
+        }
+
+        public Limit(double capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        public double getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(double capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+
+    public static class Route extends Limit {
+        private String pattern;
+
+        public Route() {
+        }
+
+        public Route(String pattern, double capacity, double refillPerSecond) {
+            super(capacity, refillPerSecond);
+            this.pattern = pattern;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public void setPattern(String pattern) {
+            this.pattern = pattern;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public Limit getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(Limit defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<Route> routes) {
+        this.routes = routes;
+    }
+
+    public List<String> getExcluded() {
+        return excluded;
+    }
+
+    public void setExcluded(List<String> excluded) {
+        this.excluded = excluded;
+    }
+}
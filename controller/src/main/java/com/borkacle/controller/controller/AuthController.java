@@ -2,16 +2,26 @@ package com.borkacle.controller.controller;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.CookieValue;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -22,9 +32,18 @@ import com.borkacle.controller.payload.JwtResponse;
 import com.borkacle.controller.payload.LoginRequest;
 import com.borkacle.controller.payload.MessageResponse;
 import com.borkacle.controller.payload.SignupRequest;
+import com.borkacle.controller.payload.TokenRefreshResponse;
 import com.borkacle.controller.security.JwtUtils;
+import com.borkacle.controller.security.LoginRateLimiter;
+import com.borkacle.controller.security.PasswordHashingExecutor;
+import com.borkacle.controller.security.RefreshTokenStore;
+import com.borkacle.controller.security.UserDetailsImpl;
 import com.borkacle.model.Usuario;
 import com.borkacle.repository.UsuarioRepository;
+import com.borkacle.service.KpiResponseCache;
+import com.borkacle.service.RolesUsuario;
+
+import io.jsonwebtoken.Claims;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -42,56 +61,176 @@ public class AuthController {
     @Autowired
     JwtUtils jwtUtils;
 
+    @Autowired
+    KpiResponseCache kpiResponseCache;
+
+    @Autowired
+    LoginRateLimiter loginRateLimiter;
+
+    @Autowired
+    PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    RolesUsuario rolesUsuario;
+
+    @Autowired
+    RefreshTokenStore refreshTokenStore;
+
+    public static final String REFRESH_COOKIE = "refreshToken";
+
+    @Value("${jwt.refresh-expiration-ms:604800000}")
+    private long refreshExpirationMs;
+
+    // Browsers drop a Secure cookie set over plain http: false wherever the site is served over
+    // http (local development, or the k8s load balancer on port 80; see k8s/app-config.yaml)
+    @Value("${jwt.refresh-cookie.secure:true}")
+    private boolean refreshCookieSecure;
+
+    // Must cover the URL the browser posts to: /api/auth/refresh directly, or
+    // /api/proxy/api/auth/refresh through the frontend proxy
+    @Value("${jwt.refresh-cookie.path:/api}")
+    private String refreshCookiePath;
+
+    // Strict when the frontend and the API share a site; None if they are on different sites
+    @Value("${jwt.refresh-cookie.same-site:Strict}")
+    private String refreshCookieSameSite;
+
+    // BCrypt runs on PasswordHashingExecutor and the request thread is released meanwhile.
+    // 429 when the email or IP is over its attempt limit, or when the hashing queue is full.
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@RequestBody LoginRequest loginRequest,
+                                                                 HttpServletRequest request) {
+        // The client IP resolved from X-Forwarded-For when the peer is a trusted proxy (see application.yaml)
+        long retryAfter = loginRateLimiter.tryAcquire(loginRequest.getEmail(), request.getRemoteAddr());
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(tooManyRequests(retryAfter, "Error: Too many login attempts"));
+        }
+        try {
+            return passwordHashingExecutor.<ResponseEntity<?>>submit(() -> login(loginRequest))
+                    .exceptionally(AuthController::authenticationFailed);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(tooManyRequests(1, "Error: Too many logins in progress"));
+        }
+    }
+
+    private ResponseEntity<?> login(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwtToken(authentication);
-        
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        
-        Usuario usuario = usuarioRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        return ResponseEntity.ok(new JwtResponse(jwt, 
-                                                 usuario.getId(), 
-                                                 usuario.getEmail(), 
-                                                 usuario.getNombre(),
-                                                 usuario.getRol()));
+
+        // The principal was just loaded from USUARIOS by the authentication manager
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+
+        JwtResponse response = new JwtResponse(jwt, 
+                                               userDetails.getId(), 
+                                               userDetails.getUsername(), 
+                                               userDetails.getNombre(),
+                                               userDetails.getRol());
+        response.setExpiresIn(jwtUtils.getJwtExpirationMs() / 1000);
+        String refreshToken = refreshTokenStore.issue(userDetails.getId(), userDetails.getUsername());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, refreshCookie(refreshToken, refreshExpirationMs / 1000).toString())
+                .body(response);
+    }
+
+    // New access token from the refresh token cookie set by /login: one HMAC check (none if the
+    // token was seen before) and the cached role lookup, no password hashing. The refresh token
+    // is rotated: the cookie is replaced and the old token stops working.
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@CookieValue(name = REFRESH_COOKIE, required = false) String refreshToken) {
+        Claims claims = refreshClaims(refreshToken);
+        Number userId = claims != null ? claims.get(JwtUtils.CLAIM_USER_ID, Number.class) : null;
+        Optional<String> rol = userId != null ? rolesUsuario.rol(userId.longValue()) : Optional.empty();
+        String rotated = rol.isPresent() ? refreshTokenStore.rotate(claims) : null;
+        if (rotated == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header(HttpHeaders.SET_COOKIE, refreshCookie("", 0).toString())
+                    .body(new MessageResponse("Error: Invalid refresh token"));
+        }
+
+        String jwt = jwtUtils.generateJwtToken(userId.longValue(), claims.getSubject(), rol.get());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, refreshCookie(rotated, refreshExpirationMs / 1000).toString())
+                .body(new TokenRefreshResponse(jwt, jwtUtils.getJwtExpirationMs() / 1000));
+    }
+
+    private Claims refreshClaims(String refreshToken) {
+        Claims claims = refreshToken != null ? jwtUtils.getClaimsFromJwtToken(refreshToken) : null;
+        return claims != null && JwtUtils.isRefreshToken(claims) ? claims : null;
+    }
+
+    // HttpOnly, so scripts in the page can't read it; only sent under jwt.refresh-cookie.path
+    private ResponseCookie refreshCookie(String value, long maxAgeSeconds) {
+        return ResponseCookie.from(REFRESH_COOKIE, value)
+                .httpOnly(true)
+                .secure(refreshCookieSecure)
+                .sameSite(refreshCookieSameSite)
+                .path(refreshCookiePath)
+                .maxAge(maxAgeSeconds)
+                .build();
+    }
+
+    private static ResponseEntity<?> authenticationFailed(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof AuthenticationException) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new MessageResponse("Error: Unauthorized"));
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        throw new CompletionException(cause);
+    }
+
+    private static ResponseEntity<?> tooManyRequests(long retryAfterSeconds, String message) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new MessageResponse(message));
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@RequestBody SignupRequest signUpRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody SignupRequest signUpRequest) {
         if (usuarioRepository.existsByEmail(signUpRequest.getEmail())) {
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                     .badRequest()
-                    .body(new MessageResponse("Error: Email is already in use!"));
+                    .body(new MessageResponse("Error: Email is already in use!")));
+        }
+
+        CompletableFuture<String> passwordHash;
+        try {
+            passwordHash = passwordHashingExecutor.submit(() -> encoder.encode(signUpRequest.getPassword()));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(tooManyRequests(1, "Error: Too many requests in progress"));
         }
 
-        // Create new user's account
-        Usuario usuario = new Usuario();
-        usuario.setNombre(signUpRequest.getNombre());
-        usuario.setEmail(signUpRequest.getEmail());
-        usuario.setPasswordHash(encoder.encode(signUpRequest.getPassword()));
-        usuario.setRol(signUpRequest.getRol() != null ? signUpRequest.getRol() : "usuario");
-        usuario.setFechaRegistro(OffsetDateTime.now());
-        usuario.setMfaEnabled("N");
+        return passwordHash.thenApply(hash -> {
+            // Create new user's account
+            Usuario usuario = new Usuario();
+            usuario.setNombre(signUpRequest.getNombre());
+            usuario.setEmail(signUpRequest.getEmail());
+            usuario.setPasswordHash(hash);
+            usuario.setRol(signUpRequest.getRol() != null ? signUpRequest.getRol() : "usuario");
+            usuario.setFechaRegistro(OffsetDateTime.now());
+            usuario.setMfaEnabled("N");
 
-        usuarioRepository.save(usuario);
+            usuarioRepository.save(usuario);
+            kpiResponseCache.invalidar(); // New user row in /api/kpi/persona
 
-        return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
+            return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
+        });
     }
 
     // --- Logout Endpoint --- //
+    // Revokes the refresh token session and clears its cookie. Access tokens already issued
+    // stay valid until they expire (jwt.expiration-ms).
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser() {
-        // For stateless JWT, the primary action is on the client (discarding the token).
-        // This backend endpoint acknowledges the request and potentially allows for future
-        // server-side invalidation logic (e.g., token blocklisting) if implemented.
-        // SecurityContextHolder.clearContext(); // Use if using Spring Security sessions
-
-        return ResponseEntity.ok().body("Logout successful");
+    public ResponseEntity<?> logoutUser(@CookieValue(name = REFRESH_COOKIE, required = false) String refreshToken) {
+        Claims claims = refreshClaims(refreshToken);
+        if (claims != null) {
+            refreshTokenStore.revoke(claims);
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, refreshCookie("", 0).toString())
+                .body("Logout successful");
     }
 } 
\ No newline at end of file
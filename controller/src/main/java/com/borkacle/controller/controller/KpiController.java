@@ -1,18 +1,23 @@
 package com.borkacle.controller.controller;
 
+import com.borkacle.controller.payload.KpiFiltro;
+import com.borkacle.controller.payload.KpiHistoryResponse;
 import com.borkacle.controller.payload.KpiResponse;
 import com.borkacle.controller.payload.KpiPersonaResponse;
-import com.borkacle.model.Equipo;
-import com.borkacle.model.Sprint;
-import com.borkacle.model.Tarea;
-import com.borkacle.model.Usuario;
-import com.borkacle.repository.EquipoRepository;
-import com.borkacle.repository.SprintRepository;
-import com.borkacle.repository.TareaRepository;
-import com.borkacle.repository.UsuarioRepository;
+import com.borkacle.controller.payload.KpiPersonaSparseResponse;
+import com.borkacle.service.KpiResponseCache;
+import com.borkacle.service.KpiService;
+import com.borkacle.service.KpiSnapshotService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -20,10 +25,15 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -36,20 +46,20 @@ public class KpiController {
     private static final Logger logger = LoggerFactory.getLogger(KpiController.class);
 
     @Autowired
-    private TareaRepository tareaRepository;
+    private KpiService kpiService;
 
     @Autowired
-    private EquipoRepository equipoRepository;
+    private KpiResponseCache kpiResponseCache;
 
     @Autowired
-    private SprintRepository sprintRepository;
-    
+    private KpiSnapshotService kpiSnapshotService;
+
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private ObjectMapper objectMapper;
 
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<KpiResponse>> getKpiData() {
+    public ResponseEntity<byte[]> getKpiData(KpiFiltro filtro, WebRequest webRequest) {
         try {
             logger.info("KpiController: Inicio de solicitud getKpiData");
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -57,72 +67,20 @@ public class KpiController {
                       auth.getName(), 
                       auth.getAuthorities().stream().map(a -> a.getAuthority()).collect(Collectors.joining(", ")));
             
-            List<KpiResponse> result = new ArrayList<>();
-            
-            // Obtener todos los equipos
-            List<Equipo> equipos = equipoRepository.findAll();
-            logger.info("KpiController: Equipos encontrados: {}", equipos.size());
-            
-            // Obtener todos los sprints
-            List<Sprint> sprints = sprintRepository.findAll();
-            logger.info("KpiController: Sprints encontrados: {}", sprints.size());
-            
-            // Para cada equipo, calcular KPIs por sprint
-            for (Equipo equipo : equipos) {
-                KpiResponse kpiResponse = new KpiResponse();
-                kpiResponse.setEquipoId(equipo.getId());
-                kpiResponse.setEquipoNombre(equipo.getNombre());
-                
-                List<KpiResponse.SprintData> sprintDataList = new ArrayList<>();
-                
-                for (Sprint sprint : sprints) {
-                    KpiResponse.SprintData sprintData = new KpiResponse.SprintData();
-                    sprintData.setSprintId(sprint.getId());
-                    sprintData.setSprintNombre(sprint.getNombre());
-                    
-                    // Obtener tareas del equipo en el sprint
-                    List<Tarea> tareas = tareaRepository.findByEquipoIdAndSprintId(equipo.getId(), sprint.getId());
-                    logger.info("KpiController: Tareas encontradas para equipo {} y sprint {}: {}", 
-                              equipo.getNombre(), sprint.getNombre(), tareas.size());
-                    
-                    // Mostrar detalles de cada tarea para depuración
-                    for (Tarea t : tareas) {
-                        logger.info("Tarea: ID={}, Título={}, TiempoEstimado={}, TiempoReal={}, Equipo={}",
-                                 t.getId(), t.getTitulo(), t.getTiempoEstimado(), t.getTiempoReal(), 
-                                 t.getAsignadoA() != null && t.getAsignadoA().getEquipo() != null ? 
-                                 t.getAsignadoA().getEquipo().getNombre() : "sin equipo");
-                    }
-                    
-                    // Calcular horas estimadas y reales
-                    double horasEstimadas = tareas.stream()
-                            .mapToDouble(t -> t.getTiempoEstimado() != null ? t.getTiempoEstimado() : 0)
-                            .sum();
-                    
-                    double horasReales = tareas.stream()
-                            .mapToDouble(t -> t.getTiempoReal() != null ? t.getTiempoReal() : 0)
-                            .sum();
-                    
-                    // Contar tareas completadas
-                    long tareasCompletadas = tareas.stream()
-                            .filter(t -> t.getEstado() != null
-                                && t.getEstado().getNombre() != null
-                                && t.getEstado().getNombre().toLowerCase().contains("complet"))
-                            .count();
-                    
-                    sprintData.setHorasEstimadas(horasEstimadas);
-                    sprintData.setHorasReales(horasReales);
-                    sprintData.setTareasCompletadas((int) tareasCompletadas);
-                    sprintData.setTareasTotales(tareas.size());
-                    
-                    sprintDataList.add(sprintData);
-                }
-                
-                kpiResponse.setSprints(sprintDataList);
-                result.add(kpiResponse);
+            // Si el cliente ya tiene esta version de los datos no se calcula nada
+            String clave = "equipos" + filtro.clave();
+            String etag = kpiResponseCache.etag(clave, kpiService.version());
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
             }
             
-            logger.info("KpiController: Respuesta generada con éxito. Equipos procesados: {}", result.size());
-            return ResponseEntity.ok(result);
+            // Se lee del cubo de KPIs en memoria (o de una sola consulta agregada si aun no esta cargado)
+            byte[] body = kpiResponseCache.obtener(clave, etag, () -> {
+                List<KpiResponse> result = kpiService.getKpiEquipos(filtro);
+                logger.info("KpiController: Respuesta generada con éxito. Equipos procesados: {}", result.size());
+                return result;
+            });
+            return jsonConEtag(body, etag);
         } catch (Exception e) {
             logger.error("KpiController: Error al procesar solicitud", e);
             throw e;
@@ -131,82 +89,119 @@ public class KpiController {
     
     @GetMapping("/persona")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<KpiPersonaResponse>> getKpiPersonaData() {
+    public ResponseEntity<byte[]> getKpiPersonaData(KpiFiltro filtro, WebRequest webRequest) {
         try {
             logger.info("KpiController: Inicio de solicitud getKpiPersonaData");
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             logger.info("KpiController: Usuario autenticado: {}", auth.getName());
             
-            // Obtener todos los usuarios y sprints en una sola consulta
-            List<Usuario> usuarios = usuarioRepository.findAll();
-            List<Sprint> sprints = sprintRepository.findAll();
-            
-            // Obtener todas las tareas con sus relaciones cargadas
-            List<Tarea> todasLasTareas = tareaRepository.findAllWithRelations();
-            
-            // Crear un mapa para acceso rápido a las tareas por usuario y sprint
-            Map<Long, Map<Long, List<Tarea>>> tareasPorUsuarioYSprint = todasLasTareas.stream()
-                .filter(t -> t.getAsignadoA() != null && t.getSprint() != null)
-                .collect(Collectors.groupingBy(
-                    t -> t.getAsignadoA().getId(),
-                    Collectors.groupingBy(t -> t.getSprint().getId())
-                ));
-            
-            List<KpiPersonaResponse> result = new ArrayList<>();
-            
-            // Para cada usuario, calcular KPIs por sprint
-            for (Usuario usuario : usuarios) {
-                KpiPersonaResponse kpiResponse = new KpiPersonaResponse();
-                kpiResponse.setUsuarioId(usuario.getId());
-                kpiResponse.setUsuarioNombre(usuario.getNombre());
-                
-                List<KpiPersonaResponse.SprintData> sprintDataList = new ArrayList<>();
-                
-                for (Sprint sprint : sprints) {
-                    KpiPersonaResponse.SprintData sprintData = new KpiPersonaResponse.SprintData();
-                    sprintData.setSprintId(sprint.getId());
-                    sprintData.setSprintNombre(sprint.getNombre());
-                    
-                    // Obtener tareas del usuario en el sprint del mapa
-                    List<Tarea> tareas = tareasPorUsuarioYSprint
-                        .getOrDefault(usuario.getId(), new HashMap<>())
-                        .getOrDefault(sprint.getId(), new ArrayList<>());
-                    
-                    // Calcular métricas
-                    double horasEstimadas = tareas.stream()
-                            .mapToDouble(t -> t.getTiempoEstimado() != null ? t.getTiempoEstimado() : 0)
-                            .sum();
-                    
-                    double horasReales = tareas.stream()
-                            .mapToDouble(t -> t.getTiempoReal() != null ? t.getTiempoReal() : 0)
-                            .sum();
-                    
-                    long tareasCompletadas = tareas.stream()
-                            .filter(t -> t.getEstado() != null
-                                && t.getEstado().getNombre() != null
-                                && t.getEstado().getNombre().toLowerCase().contains("complet"))
-                            .count();
-                    
-                    double eficiencia = horasReales > 0 ? (horasEstimadas / horasReales) * 100 : 0;
-                    
-                    sprintData.setHorasEstimadas(horasEstimadas);
-                    sprintData.setHorasReales(horasReales);
-                    sprintData.setTareasCompletadas((int) tareasCompletadas);
-                    sprintData.setTareasTotales(tareas.size());
-                    sprintData.setEficiencia(eficiencia);
-                    
-                    sprintDataList.add(sprintData);
-                }
-                
-                kpiResponse.setSprints(sprintDataList);
-                result.add(kpiResponse);
+            String clave = "persona" + filtro.clave();
+            String etag = kpiResponseCache.etag(clave, kpiService.version());
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
             }
             
-            logger.info("KpiController: Respuesta por persona generada con éxito. Usuarios procesados: {}", result.size());
-            return ResponseEntity.ok(result);
+            // Se lee del cubo de KPIs en memoria (o de las tareas si aun no esta cargado)
+            byte[] body = kpiResponseCache.obtener(clave, etag, () -> {
+                List<KpiPersonaResponse> result = kpiService.getKpiPersonas(filtro);
+                logger.info("KpiController: Respuesta por persona generada con éxito. Usuarios procesados: {}", result.size());
+                return result;
+            });
+            return jsonConEtag(body, etag);
         } catch (Exception e) {
             logger.error("KpiController: Error al procesar solicitud de KPI por persona", e);
             throw e;
         }
     }
-} 
\ No newline at end of file
+
+    // KPIs por persona sin las celdas vacias, en columnas con indices (?layout=sparse)
+    @GetMapping(value = "/persona", params = "layout=sparse")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<byte[]> getKpiPersonaSparseData(KpiFiltro filtro, WebRequest webRequest) {
+        logger.info("KpiController: Inicio de solicitud getKpiPersonaSparseData");
+        String clave = "persona-sparse" + filtro.clave();
+        String etag = kpiResponseCache.etag(clave, kpiService.version());
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        byte[] body = kpiResponseCache.obtener(clave, etag, () -> {
+            KpiPersonaSparseResponse result = kpiService.getKpiPersonasSparse(filtro);
+            logger.info("KpiController: Respuesta sparse generada con éxito. Celdas con datos: {}", result.getTareasTotales().length);
+            return result;
+        });
+        return jsonConEtag(body, etag);
+    }
+
+    // Misma respuesta que /persona, escrita usuario por usuario con un JsonGenerator
+    // en lugar de serializar la lista completa (?stream=true)
+    @GetMapping(value = "/persona", params = {"stream=true", "layout!=sparse"})
+    @PreAuthorize("isAuthenticated()")
+    public void streamKpiPersonaData(KpiFiltro filtro, WebRequest webRequest, HttpServletResponse response) throws IOException {
+        logger.info("KpiController: Inicio de solicitud streamKpiPersonaData");
+        String etag = kpiResponseCache.etag("persona" + filtro.clave(), kpiService.version());
+        if (webRequest.checkNotModified(etag)) {
+            return;
+        }
+        
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        // Si la consulta falla a mitad, el cliente no debe recibir un array cerrado y truncado
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        try {
+            generator.writeStartArray();
+            kpiService.forEachKpiPersona(filtro, fila -> {
+                try {
+                    generator.writeObject(fila);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.close();
+        } catch (IOException | RuntimeException e) {
+            // Sin cerrar el JSON: si la respuesta no salio todavia se descarta y se responde 500;
+            // si ya salio, la excepcion hace que se corte la conexion en lugar de terminar el array
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+            }
+            throw e;
+        }
+    }
+
+    // Series diarias de KPIs desde KPI_SNAPSHOTS; por defecto los ultimos 30 dias agrupados por sprint
+    @GetMapping("/history")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getKpiHistory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Long sprintId,
+            @RequestParam(required = false) Long equipoId,
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(defaultValue = KpiSnapshotService.POR_SPRINT) String agrupar) {
+        LocalDate fin = hasta != null ? hasta : LocalDate.now();
+        LocalDate inicio = desde != null ? desde : fin.minusDays(30);
+        if (inicio.isAfter(fin)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "desde must not be after hasta"));
+        }
+        try {
+            List<KpiHistoryResponse> result = kpiSnapshotService.historial(agrupar, inicio, fin, sprintId, equipoId, usuarioId);
+            logger.info("KpiController: Historial por {} del {} al {}: {} puntos", agrupar, inicio, fin, result.size());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "agrupar must be sprint, equipo or usuario"));
+        }
+    }
+
+    // no-cache obliga a revalidar con If-None-Match en cada consulta
+    private ResponseEntity<byte[]> jsonConEtag(byte[] body, String etag) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
\ No newline at end of file
@@ -1,18 +1,22 @@
 package com.borkacle.controller.controller;
 
-import com.borkacle.model.Estado;
-import com.borkacle.model.Tarea;
+import com.borkacle.model.EstadoCategoria;
 import com.borkacle.repository.TareaRepository;
+import com.borkacle.repository.TareaTablero;
+import com.borkacle.service.EstadoCategorias;
+import com.borkacle.service.KpiCube;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/tareas")
@@ -21,100 +25,60 @@ public class TareaController {
     @Autowired
     private TareaRepository tareaRepository;
 
+    @Autowired
+    private KpiCube kpiCube;
+
+    @Autowired
+    private EstadoCategorias estadoCategorias;
+
     @GetMapping("/board")
     public ResponseEntity<Map<String, Object>> getTareasForBoard() {
         try {
-            // Obtener todas las tareas
-            List<Tarea> tareas = tareaRepository.findAll();
-            
-            // Agrupar tareas por estado
-            Map<Long, List<Tarea>> tareasPorEstadoId = tareas.stream()
-                .collect(Collectors.groupingBy(tarea -> tarea.getEstado().getId()));
+            // Obtener todas las tareas (solo las columnas de la tarjeta, sin entidades ni CLOB)
+            List<TareaTablero> tareas = tareaRepository.findTablero();
             
             // Crear la estructura de respuesta
             Map<String, Object> response = new HashMap<>();
             
-            // Mapear los IDs de estado a sus nombres (según los estados mencionados)
-            Map<Long, String> estadosMap = new HashMap<>();
-            estadosMap.put(1L, "En proceso");
-            estadosMap.put(3L, "Pendiente");
-            estadosMap.put(4L, "En revision");
-            estadosMap.put(5L, "Bloqueado");
-            estadosMap.put(6L, "Completado");
-            estadosMap.put(7L, "Cancelado");
-            
-            // Construir la respuesta con los estados y sus tareas
+            // Una columna por categoria de estado, aunque este vacia
             Map<String, List<Map<String, Object>>> columnas = new HashMap<>();
+            for (EstadoCategoria categoria : EstadoCategoria.values()) {
+                columnas.put(categoria.getColumna(), new ArrayList<>());
+            }
             
-            for (Map.Entry<Long, String> estado : estadosMap.entrySet()) {
-                Long estadoId = estado.getKey();
-                String estadoNombre = estado.getValue();
-                
-                List<Tarea> tareasEstado = tareasPorEstadoId.getOrDefault(estadoId, List.of());
+            for (TareaTablero tarea : tareas) {
+                String estadoKey = estadoCategorias.categoria(tarea.getEstadoId()).getColumna();
                 
                 // Convertir cada tarea a un mapa con los campos necesarios para el frontend
-                List<Map<String, Object>> tareasMapeadas = tareasEstado.stream()
-                    .map(tarea -> {
-                        Map<String, Object> tareaMap = new HashMap<>();
-                        tareaMap.put("id", tarea.getId());
-                        tareaMap.put("codigo", "ORA-" + tarea.getId());
-                        tareaMap.put("title", tarea.getTitulo());
-                        tareaMap.put("type", tarea.getTipo() != null ? tarea.getTipo().toLowerCase() : "task");
-                        
-                        // Mapear prioridad
-                        String prioridad = "medium";
-                        if (tarea.getPrioridad() != null) {
-                            Long prioridadId = tarea.getPrioridad().getId();
-                            if (prioridadId == 1L) prioridad = "highest";
-                            else if (prioridadId == 2L) prioridad = "high";
-                            else if (prioridadId == 3L) prioridad = "medium";
-                            else if (prioridadId == 4L) prioridad = "low";
-                            else if (prioridadId == 5L) prioridad = "lowest";
-                        }
-                        tareaMap.put("priority", prioridad);
-                        
-                        // Mapear el estado según el ID
-                        String estadoKey;
-                        switch (estadoId.intValue()) {
-                            case 1: estadoKey = "inProgress"; break;
-                            case 3: estadoKey = "todo"; break;
-                            case 4: estadoKey = "review"; break;
-                            case 5: estadoKey = "blocked"; break;
-                            case 6: estadoKey = "done"; break;
-                            case 7: estadoKey = "cancelled"; break;
-                            default: estadoKey = "todo"; break;
-                        }
-                        tareaMap.put("status", estadoKey);
-                        
-                        // Información del asignado
-                        if (tarea.getAsignadoA() != null) {
-                            Map<String, Object> assignee = new HashMap<>();
-                            assignee.put("name", tarea.getAsignadoA().getNombre());
-                            assignee.put("initials", getInitials(tarea.getAsignadoA().getNombre()));
-                            tareaMap.put("assignee", assignee);
-                        }
-                        
-                        return tareaMap;
-                    })
-                    .collect(Collectors.toList());
+                Map<String, Object> tareaMap = new HashMap<>();
+                tareaMap.put("id", tarea.getId());
+                tareaMap.put("version", tarea.getVersion());
+                tareaMap.put("codigo", "ORA-" + tarea.getId());
+                tareaMap.put("title", tarea.getTitulo());
+                tareaMap.put("type", tarea.getTipo() != null ? tarea.getTipo().toLowerCase() : "task");
                 
-                // Crear la estructura de columna
-                Map<String, Object> columna = new HashMap<>();
+                // Mapear prioridad
+                String prioridad = "medium";
+                if (tarea.getPrioridadId() != null) {
+                    Long prioridadId = tarea.getPrioridadId();
+                    if (prioridadId == 1L) prioridad = "highest";
+                    else if (prioridadId == 2L) prioridad = "high";
+                    else if (prioridadId == 3L) prioridad = "medium";
+                    else if (prioridadId == 4L) prioridad = "low";
+                    else if (prioridadId == 5L) prioridad = "lowest";
+                }
+                tareaMap.put("priority", prioridad);
+                tareaMap.put("status", estadoKey);
                 
-                // Determinar la clave de columna según el estado
-                String columnaKey;
-                switch (estadoId.intValue()) {
-                    case 1: columnaKey = "inProgress"; break;
-                    case 3: columnaKey = "todo"; break;
-                    case 4: columnaKey = "review"; break;
-                    case 5: columnaKey = "blocked"; break;
-                    case 6: columnaKey = "done"; break;
-                    case 7: columnaKey = "cancelled"; break;
-                    default: columnaKey = "todo"; break;
+                // Información del asignado
+                if (tarea.getAsignadoA() != null) {
+                    Map<String, Object> assignee = new HashMap<>();
+                    assignee.put("name", tarea.getAsignadoA());
+                    assignee.put("initials", getInitials(tarea.getAsignadoA()));
+                    tareaMap.put("assignee", assignee);
                 }
                 
-                // Agregar todas las columnas 
-                columnas.put(columnaKey, tareasMapeadas);
+                columnas.get(estadoKey).add(tareaMap);
             }
             
             response.put("columns", columnas);
@@ -126,39 +90,51 @@ public class TareaController {
         }
     }
     
+    // Cambio de estado desde el tablero. Con "version" (la que devolvio /board) es un compare-and-set:
+    // un solo UPDATE ... WHERE ID = ? AND VERSION = ?, y si otra persona movio la tarea antes
+    // responde 409 con la version actual. Sin "version" la ultima escritura gana.
     @PutMapping("/{id}/estado")
     public ResponseEntity<?> actualizarEstadoTarea(@PathVariable Long id, @RequestBody Map<String, Long> payload) {
         try {
             Long estadoId = payload.get("estadoId");
+            Long version = payload.get("version");
             
             if (estadoId == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "El ID del estado es requerido"));
             }
             
-            Optional<Tarea> tareaOpt = tareaRepository.findById(id);
-            
-            if (tareaOpt.isEmpty()) {
-                return ResponseEntity.notFound().build();
+            int filas;
+            try {
+                filas = version != null
+                        ? tareaRepository.updateEstadoSiVersion(id, estadoId, version, OffsetDateTime.now())
+                        : tareaRepository.updateEstado(id, estadoId, OffsetDateTime.now());
+            } catch (DataIntegrityViolationException e) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Estado no encontrado: " + estadoId));
             }
             
-            Tarea tarea = tareaOpt.get();
-            
-            // Crear nuevo Estado
-            Estado nuevoEstado = new Estado();
-            nuevoEstado.setId(estadoId);
-            
-            // Actualizar la tarea
-            tarea.setEstado(nuevoEstado);
-            tarea.setFechaActualizacion(OffsetDateTime.now());
-            
-            // Guardar cambios
-            tareaRepository.save(tarea);
+            if (filas == 0) {
+                // Solo en el caso de fallo se lee la tarea, para distinguir 404 de 409
+                Optional<Long> versionActual = tareaRepository.findVersionById(id);
+                if (versionActual.isEmpty()) {
+                    return ResponseEntity.notFound().build();
+                }
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", "La tarea fue modificada por otra persona",
+                    "id", id,
+                    "version", versionActual.get()
+                ));
+            }
+            kpiCube.registrarEstado(id, estadoId);
             
-            return ResponseEntity.ok(Map.of(
-                "id", tarea.getId(),
-                "estadoId", estadoId,
-                "mensaje", "Estado actualizado correctamente"
-            ));
+            Map<String, Object> respuesta = new HashMap<>();
+            respuesta.put("id", id);
+            respuesta.put("estadoId", estadoId);
+            if (version != null) {
+                respuesta.put("version", version + 1);
+            }
+            respuesta.put("mensaje", "Estado actualizado correctamente");
+            return ResponseEntity.ok(respuesta);
             
         } catch (Exception e) {
             e.printStackTrace();
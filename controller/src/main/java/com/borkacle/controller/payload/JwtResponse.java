@@ -9,6 +9,7 @@ public class JwtResponse {
     private String email;
     private String nombre;
     private String rol;
+    private long expiresIn; // seconds until the access token expires (the refresh token goes in a cookie)
 
     public JwtResponse(String token, Long id, String email, String nombre, String rol) {
         this.token = token;
@@ -65,4 +66,12 @@ public class JwtResponse {
     public void setRol(String rol) {
         this.rol = rol;
     }
-} 
\ No newline at end of file
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
+    public void setExpiresIn(long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.borkacle.controller.payload;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+// Filtros opcionales de /api/kpi y /api/kpi/persona (query params). Un campo null no filtra.
+// sprintDesde/sprintHasta acotan por id de sprint; fechaDesde/fechaHasta dejan los sprints
+// que se traslapan con la ventana.
+public class KpiFiltro {
+    private Long sprintDesde;
+    private Long sprintHasta;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fechaDesde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fechaHasta;
+
+    private Long equipoId;
+    private Long usuarioId;
+
+    public Long getSprintDesde() {
+        return sprintDesde;
+    }
+
+    public void setSprintDesde(Long sprintDesde) {
+        this.sprintDesde = sprintDesde;
+    }
+
+    public Long getSprintHasta() {
+        return sprintHasta;
+    }
+
+    public void setSprintHasta(Long sprintHasta) {
+        this.sprintHasta = sprintHasta;
+    }
+
+    public LocalDate getFechaDesde() {
+        return fechaDesde;
+    }
+
+    public void setFechaDesde(LocalDate fechaDesde) {
+        this.fechaDesde = fechaDesde;
+    }
+
+    public LocalDate getFechaHasta() {
+        return fechaHasta;
+    }
+
+    public void setFechaHasta(LocalDate fechaHasta) {
+        this.fechaHasta = fechaHasta;
+    }
+
+    public Long getEquipoId() {
+        return equipoId;
+    }
+
+    public void setEquipoId(Long equipoId) {
+        this.equipoId = equipoId;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    // Sufijo para las claves de la cache de respuestas; vacio sin filtros
+    public String clave() {
+        if (sprintDesde == null && sprintHasta == null && fechaDesde == null && fechaHasta == null
+            && equipoId == null && usuarioId == null) {
+            return "";
+        }
+        return "?s=" + sprintDesde + ".." + sprintHasta
+            + "&f=" + fechaDesde + ".." + fechaHasta
+            + "&e=" + equipoId
+            + "&u=" + usuarioId;
+    }
+}
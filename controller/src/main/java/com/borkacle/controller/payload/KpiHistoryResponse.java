@@ -0,0 +1,79 @@
+package com.borkacle.controller.payload;
+
+import java.time.LocalDate;
+
+// Un punto de /api/kpi/history. equipoId o usuarioId solo vienen segun la agrupacion pedida.
+public class KpiHistoryResponse {
+    private LocalDate fecha;
+    private Long sprintId;
+    private Long equipoId;
+    private Long usuarioId;
+    private double horasEstimadas;
+    private double horasReales;
+    private int tareasCompletadas;
+    private int tareasTotales;
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public Long getSprintId() {
+        return sprintId;
+    }
+
+    public void setSprintId(Long sprintId) {
+        this.sprintId = sprintId;
+    }
+
+    public Long getEquipoId() {
+        return equipoId;
+    }
+
+    public void setEquipoId(Long equipoId) {
+        this.equipoId = equipoId;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    public double getHorasEstimadas() {
+        return horasEstimadas;
+    }
+
+    public void setHorasEstimadas(double horasEstimadas) {
+        this.horasEstimadas = horasEstimadas;
+    }
+
+    public double getHorasReales() {
+        return horasReales;
+    }
+
+    public void setHorasReales(double horasReales) {
+        this.horasReales = horasReales;
+    }
+
+    public int getTareasCompletadas() {
+        return tareasCompletadas;
+    }
+
+    public void setTareasCompletadas(int tareasCompletadas) {
+        this.tareasCompletadas = tareasCompletadas;
+    }
+
+    public int getTareasTotales() {
+        return tareasTotales;
+    }
+
+    public void setTareasTotales(int tareasTotales) {
+        this.tareasTotales = tareasTotales;
+    }
+}
@@ -0,0 +1,107 @@
+package com.borkacle.controller.payload;
+
+import java.util.List;
+
+// KPIs por persona en formato columnar: solo se envian las celdas usuario x sprint con tareas.
+// La celda i corresponde a usuarios[usuarioIndex[i]] y sprints[sprintIndex[i]];
+// eficiencia = horasEstimadas / horasReales * 100 (0 si no hay horas reales).
+public class KpiPersonaSparseResponse {
+    private List<Ref> usuarios;
+    private List<Ref> sprints;
+    private int[] usuarioIndex;
+    private int[] sprintIndex;
+    private double[] horasEstimadas;
+    private double[] horasReales;
+    private int[] tareasCompletadas;
+    private int[] tareasTotales;
+
+    public static class Ref {
+        private Long id;
+        private String nombre;
+
+        public Ref(Long id, String nombre) {
+            this.id = id;
+            this.nombre = nombre;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public void setNombre(String nombre) {
+            this.nombre = nombre;
+        }
+    }
+
+    public List<Ref> getUsuarios() {
+        return usuarios;
+    }
+
+    public void setUsuarios(List<Ref> usuarios) {
+        this.usuarios = usuarios;
+    }
+
+    public List<Ref> getSprints() {
+        return sprints;
+    }
+
+    public void setSprints(List<Ref> sprints) {
+        this.sprints = sprints;
+    }
+
+    public int[] getUsuarioIndex() {
+        return usuarioIndex;
+    }
+
+    public void setUsuarioIndex(int[] usuarioIndex) {
+        this.usuarioIndex = usuarioIndex;
+    }
+
+    public int[] getSprintIndex() {
+        return sprintIndex;
+    }
+
+    public void setSprintIndex(int[] sprintIndex) {
+        this.sprintIndex = sprintIndex;
+    }
+
+    public double[] getHorasEstimadas() {
+        return horasEstimadas;
+    }
+
+    public void setHorasEstimadas(double[] horasEstimadas) {
+        this.horasEstimadas = horasEstimadas;
+    }
+
+    public double[] getHorasReales() {
+        return horasReales;
+    }
+
+    public void setHorasReales(double[] horasReales) {
+        this.horasReales = horasReales;
+    }
+
+    public int[] getTareasCompletadas() {
+        return tareasCompletadas;
+    }
+
+    public void setTareasCompletadas(int[] tareasCompletadas) {
+        this.tareasCompletadas = tareasCompletadas;
+    }
+
+    public int[] getTareasTotales() {
+        return tareasTotales;
+    }
+
+    public void setTareasTotales(int[] tareasTotales) {
+        this.tareasTotales = tareasTotales;
+    }
+}
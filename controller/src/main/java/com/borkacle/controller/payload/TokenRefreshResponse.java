@@ -0,0 +1,36 @@
+package com.borkacle.controller.payload;
+
+public class TokenRefreshResponse {
+    private String token;
+    private String type = "Bearer";
+    private long expiresIn; // seconds until the access token expires
+
+    public TokenRefreshResponse(String token, long expiresIn) {
+        this.token = token;
+        this.expiresIn = expiresIn;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
+    public void setExpiresIn(long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+}
@@ -1,6 +1,7 @@
 package com.borkacle.controller.security;
 
 import java.io.IOException;
+import java.util.Optional;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -12,18 +13,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.borkacle.service.RolesUsuario;
+
+import io.jsonwebtoken.Claims;
+
 public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private RolesUsuario rolesUsuario;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
@@ -32,10 +35,9 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            Claims claims = jwt != null ? jwtUtils.getClaimsFromJwtToken(jwt) : null;
+            UserDetailsImpl userDetails = claims != null ? fromClaims(claims) : null;
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -52,6 +54,23 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // The user comes from the signed claims. The role is checked against RolesUsuario, which
+    // reads USUARIOS at most once per user per TTL, so a role change or a deleted user applies
+    // to tokens that were already issued.
+    private UserDetailsImpl fromClaims(Claims claims) {
+        Number userId = claims.get(JwtUtils.CLAIM_USER_ID, Number.class);
+        String rol = claims.get(JwtUtils.CLAIM_ROLE, String.class);
+        if (userId == null || rol == null || JwtUtils.isRefreshToken(claims)) {
+            return null;
+        }
+        Optional<String> rolActual = rolesUsuario.rol(userId.longValue());
+        if (!rolActual.isPresent()) {
+            logger.warn("JWT for user {} that no longer exists", userId);
+            return null;
+        }
+        return new UserDetailsImpl(userId.longValue(), claims.getSubject(), null, rolActual.get(), null);
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
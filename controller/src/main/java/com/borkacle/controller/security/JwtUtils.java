@@ -1,18 +1,30 @@
 package com.borkacle.controller.security;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import java.security.Key;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Component
 public class JwtUtils {
@@ -23,51 +35,184 @@ public class JwtUtils {
 
     @Value("${jwt.expiration-ms}")
     private int jwtExpirationMs;
-    
+
+    @Value("${jwt.claims-cache.max-entries:10000}")
+    private int claimsCacheMaxEntries;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Key key;
-    
+
+    // Thread-safe and immutable; building one per call re-resolves the key and the JSON reader
+    private JwtParser parser;
+
+    // Verified tokens by SHA-256 of the token (the token itself is a credential and is not kept),
+    // until the token expires
+    private final Map<ByteBuffer, VerifiedToken> verified = new ConcurrentHashMap<>();
+
+    private Counter cacheHits;
+    private Counter cacheMisses;
+    private Timer verifyTimer;
+
+    private static final class VerifiedToken {
+        private final Claims claims;
+        private final long expiresAt;
+
+        private VerifiedToken(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+
     @PostConstruct
     public void init() {
         // Generate a secure key for HS512 algorithm
         key = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+        parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+
+        cacheHits = Counter.builder("jwt.claims.cache").tag("result", "hit")
+                .description("Requests whose token was already verified").register(meterRegistry);
+        cacheMisses = Counter.builder("jwt.claims.cache").tag("result", "miss")
+                .description("Requests whose token had to be verified").register(meterRegistry);
+        verifyTimer = Timer.builder("jwt.verify")
+                .description("Signature verification and parsing of a JWT").register(meterRegistry);
+        Gauge.builder("jwt.claims.cache.size", verified, Map::size)
+                .description("Verified tokens kept in memory").register(meterRegistry);
         logger.info("JWT key initialized successfully");
     }
 
+    // Signed claims carrying the user id and role, so authenticated requests don't read USUARIOS
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "rol";
+
+    // Refresh tokens carry tkn=refresh and no role; they are only accepted by /api/auth/refresh
+    public static final String CLAIM_TOKEN_TYPE = "tkn";
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
+    public static final String CLAIM_FAMILY = "fam";
+
     public String generateJwtToken(Authentication authentication) {
-        UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+        return generateJwtToken(userPrincipal.getId(), userPrincipal.getUsername(), userPrincipal.getRol());
+    }
+
+    public String generateJwtToken(Long userId, String email, String rol) {
+        Date now = new Date();
+        return Jwts.builder()
+                .setSubject(email)
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_ROLE, rol)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + jwtExpirationMs))
+                .signWith(key, SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    // Refresh tokens are issued and tracked by RefreshTokenStore: jti identifies the token and
+    // fam the login session it belongs to
+    public String generateRefreshToken(Long userId, String email, String jti, String family, long expiresAt) {
         return Jwts.builder()
-                .setSubject(userPrincipal.getUsername())
+                .setSubject(email)
+                .setId(jti)
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_TOKEN_TYPE, TOKEN_TYPE_REFRESH)
+                .claim(CLAIM_FAMILY, family)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
+                .setExpiration(new Date(expiresAt))
                 .signWith(key, SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    public static boolean isRefreshToken(Claims claims) {
+        return TOKEN_TYPE_REFRESH.equals(claims.get(CLAIM_TOKEN_TYPE, String.class));
+    }
+
+    // Lifetime of access tokens, returned to clients so they can refresh before expiry
+    public long getJwtExpirationMs() {
+        return jwtExpirationMs;
+    }
+
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        Claims claims = getClaimsFromJwtToken(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    // Claims of a valid token, or null. A token seen before is answered from the cache without
+    // checking the signature again; the returned claims are shared and must not be modified.
+    public Claims getClaimsFromJwtToken(String authToken) {
+        if (authToken == null || authToken.isEmpty()) {
+            return null;
+        }
+        ByteBuffer hash = sha256(authToken);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.get(hash);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                cacheHits.increment();
+                return cached.claims;
+            }
+            verified.remove(hash);
+            logger.error("JWT token is expired");
+            return null;
+        }
+
+        cacheMisses.increment();
+        Claims claims = verify(authToken);
+        if (claims != null && claims.getExpiration() != null) {
+            put(hash, new VerifiedToken(claims, claims.getExpiration().getTime()), now);
+        }
+        return claims;
     }
 
     public boolean validateJwtToken(String authToken) {
+        return getClaimsFromJwtToken(authToken) != null;
+    }
+
+    private Claims verify(String authToken) {
+        long start = System.nanoTime();
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return parser.parseClaimsJws(authToken).getBody();
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             logger.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             logger.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return null;
+    }
+
+    private void put(ByteBuffer hash, VerifiedToken token, long now) {
+        if (verified.size() >= claimsCacheMaxEntries) {
+            // Expired tokens first; if that is not enough, start over
+            Iterator<VerifiedToken> it = verified.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().expiresAt <= now) {
+                    it.remove();
+                }
+            }
+            if (verified.size() >= claimsCacheMaxEntries) {
+                logger.info("JwtUtils: Limit of {} verified tokens reached, clearing the cache", claimsCacheMaxEntries);
+                verified.clear();
+            }
+        }
+        verified.put(hash, token);
+    }
+
+    private static ByteBuffer sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-        return false;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.borkacle.controller.security;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Login attempts allowed per email and per client IP, checked before any password hashing so
+ * that retry storms are rejected without spending CPU on BCrypt. The IP limit is higher
+ * because several users (or the bot) share one address.
+ */
+@Component
+public class LoginRateLimiter {
+
+    @Value("${auth.login.per-email-per-minute:5}")
+    private double perEmailPerMinute;
+
+    @Value("${auth.login.per-ip-per-minute:60}")
+    private double perIpPerMinute;
+
+    private final Map<String, TokenBucket> byEmail = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> byIp = new ConcurrentHashMap<>();
+
+    // 0 if the attempt is allowed, otherwise the seconds to wait before retrying
+    public long tryAcquire(String email, String ip) {
+        TokenBucket ipBucket = byIp.computeIfAbsent(ip != null ? ip : "",
+                k -> new TokenBucket(perIpPerMinute, perIpPerMinute / 60));
+        if (!ipBucket.tryConsume()) {
+            return Math.max(1, ipBucket.secondsUntilNext());
+        }
+        if (email != null) {
+            TokenBucket emailBucket = byEmail.computeIfAbsent(email.trim().toLowerCase(Locale.ROOT),
+                    k -> new TokenBucket(perEmailPerMinute, perEmailPerMinute / 60));
+            if (!emailBucket.tryConsume()) {
+                return Math.max(1, emailBucket.secondsUntilNext());
+            }
+        }
+        return 0;
+    }
+
+    // Full buckets carry no state, drop them so the maps only hold recent senders
+    @Scheduled(fixedDelay = 60000)
+    public void purge() {
+        byEmail.values().removeIf(TokenBucket::isFull);
+        byIp.values().removeIf(TokenBucket::isFull);
+    }
+}
@@ -0,0 +1,158 @@
+package com.borkacle.controller.security;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.borkacle.controller.config.RateLimitProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-user, per-route rate limit. Runs after {@link AuthTokenFilter}, so requests are keyed by
+ * the JWT subject (or the client IP when there is no valid token) and the route pattern they
+ * match in {@link RateLimitProperties}. Requests over the limit get 429 with Retry-After.
+ *
+ * Memory is bounded by ratelimit.max-keys: buckets that have refilled carry no state and are
+ * dropped every minute, and when the map is full new keys share one overflow bucket per route
+ * until space frees up.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String DEFAULT_ROUTE = "default";
+
+    private final RateLimitProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<RouteLimit> routes = new ArrayList<>();
+    private final RouteLimit defaultRoute;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private static final class RouteLimit {
+        private final String pattern;
+        private final RateLimitProperties.Limit limit;
+        private final TokenBucket overflow;
+        private final Counter allowed;
+        private final Counter rejected;
+
+        private RouteLimit(String pattern, RateLimitProperties.Limit limit, MeterRegistry meterRegistry) {
+            this.pattern = pattern;
+            this.limit = limit;
+            this.overflow = newBucket(limit);
+            this.allowed = Counter.builder("ratelimit.requests").tag("route", pattern).tag("result", "allowed")
+                    .description("Requests checked by the rate limiter").register(meterRegistry);
+            this.rejected = Counter.builder("ratelimit.requests").tag("route", pattern).tag("result", "rejected")
+                    .description("Requests checked by the rate limiter").register(meterRegistry);
+        }
+    }
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            routes.add(new RouteLimit(route.getPattern(), route, meterRegistry));
+        }
+        defaultRoute = new RouteLimit(DEFAULT_ROUTE, properties.getDefaultLimit(), meterRegistry);
+        Gauge.builder("ratelimit.buckets", buckets, Map::size)
+                .description("Rate limit buckets kept in memory").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled() || HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        for (String excluded : properties.getExcluded()) {
+            if (pathMatcher.match(excluded, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RouteLimit route = route(request.getServletPath());
+        long waitNanos = bucket(clientKey(request) + '|' + route.pattern, route).tryConsumeOrWait();
+        if (waitNanos == 0) {
+            route.allowed.increment();
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        route.rejected.increment();
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"Error: Too many requests\"}");
+    }
+
+    private RouteLimit route(String path) {
+        for (RouteLimit route : routes) {
+            if (pathMatcher.match(route.pattern, path)) {
+                return route;
+            }
+        }
+        return defaultRoute;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "u:" + authentication.getName();
+        }
+        // Resolved from X-Forwarded-For by Tomcat when the peer is a trusted proxy (see application.yaml)
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private TokenBucket bucket(String key, RouteLimit route) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= properties.getMaxKeys()) {
+            return route.overflow;
+        }
+        return buckets.computeIfAbsent(key, k -> newBucket(route.limit));
+    }
+
+    private static TokenBucket newBucket(RateLimitProperties.Limit limit) {
+        return new TokenBucket(limit.getCapacity(), limit.getRefillPerSecond());
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purge() {
+        int before = buckets.size();
+        buckets.values().removeIf(TokenBucket::isFull);
+        if (before >= properties.getMaxKeys()) {
+            logger.warn("RateLimitFilter: {} buckets at the limit of {}, {} left after purge",
+                    before, properties.getMaxKeys(), buckets.size());
+        }
+    }
+}
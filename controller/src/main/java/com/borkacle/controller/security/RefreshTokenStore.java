@@ -0,0 +1,159 @@
+package com.borkacle.controller.security;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Server-side record of refresh tokens. Each login starts a session (the {@code fam} claim)
+ * whose current token is identified by its {@code jti}; /api/auth/refresh replaces it with a
+ * new one, and logout removes the session. A signed refresh token is only accepted while it
+ * is the current token of a live session.
+ *
+ * A rotated token presented again after {@code jwt.refresh-reuse-grace-ms} means it was copied,
+ * so the whole session is revoked. Within the grace period it is only rejected: two tabs that
+ * refresh at the same time share the cookie set by whichever one won.
+ *
+ * Sessions live in memory, like the signing key in {@link JwtUtils}: a restart ends them all.
+ */
+@Component
+public class RefreshTokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenStore.class);
+
+    @Value("${jwt.refresh-expiration-ms:604800000}")
+    private long refreshExpirationMs;
+
+    @Value("${jwt.refresh-reuse-grace-ms:10000}")
+    private long reuseGraceMs;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Live sessions by family id
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private Counter reuseDetected;
+
+    private static final class Session {
+        private final Long userId;
+        private String jti;
+        private String previousJti;
+        private long rotatedAt;
+        private long expiresAt;
+        private boolean revoked;
+
+        private Session(Long userId, String jti, long expiresAt) {
+            this.userId = userId;
+            this.jti = jti;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        reuseDetected = Counter.builder("jwt.refresh.reuse")
+                .description("Rotated refresh tokens presented again; their session was revoked").register(meterRegistry);
+        Gauge.builder("jwt.refresh.sessions", sessions, Map::size)
+                .description("Refresh token sessions kept in memory").register(meterRegistry);
+    }
+
+    // Starts a session and returns its first refresh token
+    public String issue(Long userId, String email) {
+        String family = newId();
+        String jti = newId();
+        long expiresAt = System.currentTimeMillis() + refreshExpirationMs;
+        sessions.put(family, new Session(userId, jti, expiresAt));
+        return jwtUtils.generateRefreshToken(userId, email, jti, family, expiresAt);
+    }
+
+    // Replaces a verified refresh token with a new one of the same session, or returns null if
+    // it is not the current token of a live session
+    public String rotate(Claims claims) {
+        String family = claims.get(JwtUtils.CLAIM_FAMILY, String.class);
+        String jti = claims.getId();
+        Session session = family != null ? sessions.get(family) : null;
+        if (session == null || jti == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (session) {
+            if (session.revoked) {
+                return null;
+            }
+            if (jti.equals(session.jti)) {
+                if (session.expiresAt <= now) {
+                    revoke(family, session);
+                    return null;
+                }
+                session.previousJti = session.jti;
+                session.rotatedAt = now;
+                session.jti = newId();
+                session.expiresAt = now + refreshExpirationMs;
+                return jwtUtils.generateRefreshToken(session.userId, claims.getSubject(), session.jti, family,
+                        session.expiresAt);
+            }
+            if (jti.equals(session.previousJti) && now - session.rotatedAt <= reuseGraceMs) {
+                return null;
+            }
+            reuseDetected.increment();
+            logger.warn("Refresh token reused for user {}, revoking its session", session.userId);
+            revoke(family, session);
+            return null;
+        }
+    }
+
+    // Logout: ends the session of a verified refresh token, if it is still its current (or just rotated) token
+    public void revoke(Claims claims) {
+        String family = claims.get(JwtUtils.CLAIM_FAMILY, String.class);
+        Session session = family != null ? sessions.get(family) : null;
+        String jti = claims.getId();
+        if (session == null || jti == null) {
+            return;
+        }
+        synchronized (session) {
+            if (jti.equals(session.jti) || jti.equals(session.previousJti)) {
+                revoke(family, session);
+            }
+        }
+    }
+
+    private void revoke(String family, Session session) {
+        session.revoked = true;
+        sessions.remove(family, session);
+    }
+
+    @Scheduled(fixedDelay = 3600000)
+    public void purge() {
+        long now = System.currentTimeMillis();
+        sessions.entrySet().removeIf(e -> {
+            synchronized (e.getValue()) {
+                if (e.getValue().expiresAt <= now) {
+                    e.getValue().revoked = true;
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString();
+    }
+}
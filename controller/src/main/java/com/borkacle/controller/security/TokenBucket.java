@@ -0,0 +1,53 @@
+package com.borkacle.controller.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket: up to {@code capacity} requests at once, refilled at {@code refillPerSecond}.
+ * Lock-free: the whole state is one long, the time at which the bucket will be full again
+ * (GCRA), updated with compare-and-set. One instance per limited key.
+ */
+public class TokenBucket {
+    private final long nanosPerToken;
+    // How far ahead of now the "full again" time may be while a token is still available
+    private final long tolerance;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.nanosPerToken = (long) Math.ceil(TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+        this.tolerance = (long) ((Math.max(1, capacity) - 1) * nanosPerToken);
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    public boolean tryConsume() {
+        return tryConsumeOrWait() == 0;
+    }
+
+    // 0 if a token was taken, otherwise the nanoseconds until one is available
+    public long tryConsumeOrWait() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long start = current - now > 0 ? current : now;
+            long ahead = start - now;
+            if (ahead > tolerance) {
+                return ahead - tolerance;
+            }
+            if (fullAt.compareAndSet(current, start + nanosPerToken)) {
+                return 0;
+            }
+        }
+    }
+
+    // Seconds until the next token is available (0 if there is one now)
+    public long secondsUntilNext() {
+        long wait = fullAt.get() - System.nanoTime() - tolerance;
+        return wait > 0 ? (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1) : 0;
+    }
+
+    // Full and unused: the key can be forgotten without changing any decision
+    public boolean isFull() {
+        return fullAt.get() - System.nanoTime() <= 0;
+    }
+}
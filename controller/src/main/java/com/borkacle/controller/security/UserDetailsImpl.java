@@ -0,0 +1,91 @@
+package com.borkacle.controller.security;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.borkacle.model.Usuario;
+
+/**
+ * Authenticated user. Built from the USUARIOS row at login and from the JWT claims on every
+ * other request, so it only carries what the token carries (no password after login).
+ */
+public class UserDetailsImpl implements UserDetails, CredentialsContainer {
+    private final Long id;
+    private final String email;
+    private final String nombre;
+    private final String rol;
+    private String password;
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    public UserDetailsImpl(Long id, String email, String nombre, String rol, String password) {
+        this.id = id;
+        this.email = email;
+        this.nombre = nombre;
+        this.rol = rol;
+        this.password = password;
+        this.authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + rol.toUpperCase()));
+    }
+
+    public static UserDetailsImpl build(Usuario usuario) {
+        return new UserDetailsImpl(usuario.getId(), usuario.getEmail(), usuario.getNombre(),
+                usuario.getRol(), usuario.getPasswordHash());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getRol() {
+        return rol;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    // Called by the authentication manager after the password check
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -1,8 +1,6 @@
 package com.borkacle.controller.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -11,22 +9,17 @@ import org.springframework.stereotype.Service;
 import com.borkacle.model.Usuario;
 import com.borkacle.repository.UsuarioRepository;
 
-import java.util.Collections;
-
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    // Only used at login; authenticated requests build the user from the JWT claims
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         Usuario usuario = usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + email));
 
-        return User.builder()
-                .username(usuario.getEmail())
-                .password(usuario.getPasswordHash())
-                .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + usuario.getRol().toUpperCase())))
-                .build();
+        return UserDetailsImpl.build(usuario);
     }
-} 
\ No newline at end of file
+}
@@ -1,9 +1,14 @@
 package com.borkacle.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 @Entity
 @Table(name = "ESTADOS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "borkacle.estado")
 public class Estado {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
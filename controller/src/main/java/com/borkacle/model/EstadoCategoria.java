@@ -0,0 +1,50 @@
+package com.borkacle.model;
+
+import java.text.Normalizer;
+
+// Categoria de un Estado, que es lo que usan el tablero, los sprints y los KPIs.
+// La columna es la clave que espera el frontend.
+public enum EstadoCategoria {
+    TODO("todo"),
+    IN_PROGRESS("inProgress"),
+    REVIEW("review"),
+    BLOCKED("blocked"),
+    DONE("done"),
+    CANCELLED("cancelled");
+
+    private final String columna;
+
+    EstadoCategoria(String columna) {
+        this.columna = columna;
+    }
+
+    public String getColumna() {
+        return columna;
+    }
+
+    // Clasifica un nombre de ESTADOS ("Completado", "COMPLETADA", "En revisión", "EN_PROGRESO"...);
+    // un nombre que no coincide con ninguna categoria cuenta como TODO
+    public static EstadoCategoria deNombre(String nombre) {
+        EstadoCategoria categoria = reconocer(nombre);
+        return categoria != null ? categoria : TODO;
+    }
+
+    // Como deNombre, pero null si el nombre no coincide con ninguna categoria
+    public static EstadoCategoria reconocer(String nombre) {
+        if (nombre == null) {
+            return null;
+        }
+        String n = Normalizer.normalize(nombre, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .replace('_', ' ')
+            .toLowerCase()
+            .trim();
+        if (n.contains("complet")) return DONE;
+        if (n.contains("cancel")) return CANCELLED;
+        if (n.contains("bloque")) return BLOCKED;
+        if (n.contains("revis")) return REVIEW;
+        if (n.contains("proceso") || n.contains("progreso")) return IN_PROGRESS;
+        if (n.contains("pendiente") || n.contains("por hacer") || n.equals("todo") || n.equals("to do")) return TODO;
+        return null;
+    }
+}
@@ -0,0 +1,113 @@
+package com.borkacle.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+// Foto diaria de los KPIs de un usuario en un sprint (tabla KPI_SNAPSHOTS).
+// Guarda ids sin relaciones para que la fila sea compacta y sobreviva a borrados.
+@Entity
+@Table(name = "KPI_SNAPSHOTS")
+public class KpiSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "FECHA")
+    private LocalDate fecha;
+
+    @Column(name = "SPRINT_ID")
+    private Long sprintId;
+
+    @Column(name = "EQUIPO_ID")
+    private Long equipoId;
+
+    // Null en la fila de las tareas sin asignar del sprint
+    @Column(name = "USUARIO_ID")
+    private Long usuarioId;
+
+    @Column(name = "HORAS_ESTIMADAS")
+    private Double horasEstimadas;
+
+    @Column(name = "HORAS_REALES")
+    private Double horasReales;
+
+    @Column(name = "TAREAS_COMPLETADAS")
+    private Integer tareasCompletadas;
+
+    @Column(name = "TAREAS_TOTALES")
+    private Integer tareasTotales;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public Long getSprintId() {
+        return sprintId;
+    }
+
+    public void setSprintId(Long sprintId) {
+        this.sprintId = sprintId;
+    }
+
+    public Long getEquipoId() {
+        return equipoId;
+    }
+
+    public void setEquipoId(Long equipoId) {
+        this.equipoId = equipoId;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    public Double getHorasEstimadas() {
+        return horasEstimadas;
+    }
+
+    public void setHorasEstimadas(Double horasEstimadas) {
+        this.horasEstimadas = horasEstimadas;
+    }
+
+    public Double getHorasReales() {
+        return horasReales;
+    }
+
+    public void setHorasReales(Double horasReales) {
+        this.horasReales = horasReales;
+    }
+
+    public Integer getTareasCompletadas() {
+        return tareasCompletadas;
+    }
+
+    public void setTareasCompletadas(Integer tareasCompletadas) {
+        this.tareasCompletadas = tareasCompletadas;
+    }
+
+    public Integer getTareasTotales() {
+        return tareasTotales;
+    }
+
+    public void setTareasTotales(Integer tareasTotales) {
+        this.tareasTotales = tareasTotales;
+    }
+}
@@ -1,10 +1,15 @@
 package com.borkacle.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.time.OffsetDateTime;
 
 @Entity
 @Table(name = "PRIORIDADES")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "borkacle.prioridad")
 public class Prioridad {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,13 +1,18 @@
 package com.borkacle.model;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import javax.persistence.*;
 import java.time.OffsetDateTime;
 
 @Entity
 @Table(name = "TAREAS")
+@DynamicUpdate // UPDATE only the columns that changed (the CLOB is not rewritten on every edit)
 public class Tarea {
+    // Pooled sequence (TAREAS_SEQ, INCREMENT BY 50) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tareas_seq")
+    @SequenceGenerator(name = "tareas_seq", sequenceName = "TAREAS_SEQ", allocationSize = 50)
     @Column(name = "ID")
     private Long id;
 
@@ -51,6 +56,11 @@ public class Tarea {
     @Column(name = "TIPO")
     private String tipo;
 
+    // Optimistic locking: incremented on every write, checked by the board state transition
+    @Version
+    @Column(name = "VERSION")
+    private Long version;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -155,4 +165,12 @@ public class Tarea {
     public void setTipo(String tipo) {
         this.tipo = tipo;
     }
-} 
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
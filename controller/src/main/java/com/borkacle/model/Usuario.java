@@ -1,11 +1,16 @@
 package com.borkacle.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.time.OffsetDateTime;
 import com.borkacle.model.Equipo;
 
 @Entity
 @Table(name = "USUARIOS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "borkacle.usuario")
 public class Usuario {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -2,8 +2,15 @@ package com.borkacle.repository;
 
 import com.borkacle.model.Equipo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface EquipoRepository extends JpaRepository<Equipo, Long> {
+
+    // Solo id y nombre, sin cargar el manager de cada equipo
+    @Query("SELECT e.id, e.nombre FROM Equipo e ORDER BY e.id")
+    List<Object[]> findAllIdAndNombre();
 } 
\ No newline at end of file
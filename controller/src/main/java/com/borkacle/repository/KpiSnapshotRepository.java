@@ -0,0 +1,37 @@
+package com.borkacle.repository;
+
+import com.borkacle.model.KpiSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+@Repository
+public interface KpiSnapshotRepository extends JpaRepository<KpiSnapshot, Long> {
+
+    @Modifying
+    @Query("DELETE FROM KpiSnapshot k WHERE k.fecha = :fecha")
+    int deleteByFecha(@Param("fecha") LocalDate fecha);
+
+    // Foto del dia calculada y escrita en la base, sin traer las tareas a la aplicacion:
+    // una fila por (sprint, usuario) con tareas, con el equipo actual del usuario, y una con
+    // USUARIO_ID y EQUIPO_ID nulos para las tareas sin asignar, que tambien cuentan en el sprint
+    @Modifying
+    @Query(value = "INSERT INTO KPI_SNAPSHOTS " +
+                   "(FECHA, SPRINT_ID, EQUIPO_ID, USUARIO_ID, HORAS_ESTIMADAS, HORAS_REALES, TAREAS_COMPLETADAS, TAREAS_TOTALES) " +
+                   "SELECT :fecha, t.SPRINT_ID, u.EQUIPO_ID, t.ASIGNADO_A, " +
+                   "SUM(NVL(t.TIEMPO_ESTIMADO, 0)), " +
+                   "SUM(NVL(t.TIEMPO_REAL, 0)), " +
+                   "SUM(CASE WHEN t.ESTADO_ID IN (:doneIds) THEN 1 ELSE 0 END), " +
+                   "COUNT(*) " +
+                   "FROM TAREAS t " +
+                   "LEFT JOIN USUARIOS u ON u.ID = t.ASIGNADO_A " +
+                   "WHERE t.SPRINT_ID IS NOT NULL " +
+                   "GROUP BY t.SPRINT_ID, u.EQUIPO_ID, t.ASIGNADO_A",
+           nativeQuery = true)
+    int insertSnapshot(@Param("fecha") LocalDate fecha, @Param("doneIds") Collection<Long> doneIds);
+}
@@ -2,9 +2,16 @@ package com.borkacle.repository;
 
 import com.borkacle.model.Prioridad;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
 @Repository
 public interface PrioridadRepository extends JpaRepository<Prioridad, Long> {
+    // Cacheable en la cache de consultas cuando el perfil l2cache esta activo
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Prioridad findByNombre(String nombre);
 } 
\ No newline at end of file
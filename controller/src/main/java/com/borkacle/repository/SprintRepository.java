@@ -3,8 +3,10 @@ package com.borkacle.repository;
 import com.borkacle.model.Sprint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +22,79 @@ public interface SprintRepository extends JpaRepository<Sprint, Long> {
            "LEFT JOIN Estado e ON t.estado.id = e.id " +
            "ORDER BY s.fechaInicio DESC")
     List<Object[]> findAllSprintsWithTasks(); // Keep or remove based on needs
+
+    // Burndown de un sprint calculado en la base: una fila por dia entre FECHA_INICIO y FECHA_FIN.
+    // Una tarea cuenta como cerrada el dia de su FECHA_ACTUALIZACION si su estado es DONE
+    // (las cerradas antes del inicio se descuentan el primer dia).
+    // [dia, horasRestantes, tareasRestantes, horasRealesAcumuladas, horasIdeales]
+    @Query(value = "WITH sprint AS (" +
+                   "  SELECT FECHA_INICIO, FECHA_FIN FROM SPRINTS WHERE ID = :sprintId" +
+                   "), dias AS (" +
+                   "  SELECT FECHA_INICIO + LEVEL - 1 AS DIA, LEVEL - 1 AS N, FECHA_FIN - FECHA_INICIO AS TOTAL_DIAS" +
+                   "  FROM sprint" +
+                   "  CONNECT BY LEVEL <= FECHA_FIN - FECHA_INICIO + 1" +
+                   "), total AS (" +
+                   "  SELECT NVL(SUM(TIEMPO_ESTIMADO), 0) AS HORAS, COUNT(*) AS TAREAS FROM TAREAS WHERE SPRINT_ID = :sprintId" +
+                   "), cerradas AS (" +
+                   "  SELECT GREATEST(TRUNC(CAST(t.FECHA_ACTUALIZACION AS DATE)), s.FECHA_INICIO) AS DIA," +
+                   "         SUM(NVL(t.TIEMPO_ESTIMADO, 0)) AS HORAS, SUM(NVL(t.TIEMPO_REAL, 0)) AS REALES, COUNT(*) AS TAREAS" +
+                   "  FROM TAREAS t CROSS JOIN sprint s" +
+                   "  WHERE t.SPRINT_ID = :sprintId AND t.ESTADO_ID IN (:doneIds)" +
+                   "  GROUP BY GREATEST(TRUNC(CAST(t.FECHA_ACTUALIZACION AS DATE)), s.FECHA_INICIO)" +
+                   ") " +
+                   "SELECT d.DIA, " +
+                   "       total.HORAS - SUM(NVL(c.HORAS, 0)) OVER (ORDER BY d.DIA), " +
+                   "       total.TAREAS - SUM(NVL(c.TAREAS, 0)) OVER (ORDER BY d.DIA), " +
+                   "       SUM(NVL(c.REALES, 0)) OVER (ORDER BY d.DIA), " +
+                   "       CASE WHEN d.TOTAL_DIAS > 0 THEN total.HORAS * (d.TOTAL_DIAS - d.N) / d.TOTAL_DIAS ELSE 0 END " +
+                   "FROM dias d CROSS JOIN total LEFT JOIN cerradas c ON c.DIA = d.DIA " +
+                   "ORDER BY d.DIA",
+           nativeQuery = true)
+    List<Object[]> findBurndown(@Param("sprintId") Long sprintId, @Param("doneIds") Collection<Long> doneIds);
+
+    // Velocidad de los ultimos :limite sprints (por fecha de inicio), con el promedio movil de
+    // 3 sprints de las horas completadas calculado sobre todos los sprints.
+    // [id, nombre, fechaInicio, fechaFin, horasCompletadas, horasPlaneadas, horasReales,
+    //  tareasCompletadas, tareasTotales, promedioMovil]
+    @Query(value = "SELECT * FROM (" +
+                   "  SELECT s.ID, s.NOMBRE, s.FECHA_INICIO, s.FECHA_FIN," +
+                   "         NVL(SUM(CASE WHEN t.ESTADO_ID IN (:doneIds) THEN t.TIEMPO_ESTIMADO END), 0) AS HORAS_COMPLETADAS," +
+                   "         NVL(SUM(t.TIEMPO_ESTIMADO), 0) AS HORAS_PLANEADAS," +
+                   "         NVL(SUM(t.TIEMPO_REAL), 0) AS HORAS_REALES," +
+                   "         COUNT(CASE WHEN t.ESTADO_ID IN (:doneIds) THEN 1 END) AS TAREAS_COMPLETADAS," +
+                   "         COUNT(t.ID) AS TAREAS_TOTALES," +
+                   "         AVG(NVL(SUM(CASE WHEN t.ESTADO_ID IN (:doneIds) THEN t.TIEMPO_ESTIMADO END), 0))" +
+                   "           OVER (ORDER BY s.FECHA_INICIO, s.ID ROWS BETWEEN 2 PRECEDING AND CURRENT ROW) AS PROMEDIO_MOVIL" +
+                   "  FROM SPRINTS s" +
+                   "  LEFT JOIN TAREAS t ON t.SPRINT_ID = s.ID" +
+                   "  GROUP BY s.ID, s.NOMBRE, s.FECHA_INICIO, s.FECHA_FIN" +
+                   "  ORDER BY s.FECHA_INICIO DESC, s.ID DESC" +
+                   "  FETCH FIRST :limite ROWS ONLY" +
+                   ") ORDER BY FECHA_INICIO, ID",
+           nativeQuery = true)
+    List<Object[]> findVelocity(@Param("limite") int limite,
+                                @Param("doneIds") Collection<Long> doneIds);
+
+    // Lo mismo contando solo las tareas asignadas a usuarios de un equipo. Es una consulta aparte
+    // para no poner ":equipoId IS NULL OR ..." en la condicion del join
+    @Query(value = "SELECT * FROM (" +
+                   "  SELECT s.ID, s.NOMBRE, s.FECHA_INICIO, s.FECHA_FIN," +
+                   "         NVL(SUM(CASE WHEN t.ESTADO_ID IN (:doneIds) THEN t.TIEMPO_ESTIMADO END), 0) AS HORAS_COMPLETADAS," +
+                   "         NVL(SUM(t.TIEMPO_ESTIMADO), 0) AS HORAS_PLANEADAS," +
+                   "         NVL(SUM(t.TIEMPO_REAL), 0) AS HORAS_REALES," +
+                   "         COUNT(CASE WHEN t.ESTADO_ID IN (:doneIds) THEN 1 END) AS TAREAS_COMPLETADAS," +
+                   "         COUNT(t.ID) AS TAREAS_TOTALES," +
+                   "         AVG(NVL(SUM(CASE WHEN t.ESTADO_ID IN (:doneIds) THEN t.TIEMPO_ESTIMADO END), 0))" +
+                   "           OVER (ORDER BY s.FECHA_INICIO, s.ID ROWS BETWEEN 2 PRECEDING AND CURRENT ROW) AS PROMEDIO_MOVIL" +
+                   "  FROM SPRINTS s" +
+                   "  LEFT JOIN TAREAS t ON t.SPRINT_ID = s.ID" +
+                   "    AND t.ASIGNADO_A IN (SELECT u.ID FROM USUARIOS u WHERE u.EQUIPO_ID = :equipoId)" +
+                   "  GROUP BY s.ID, s.NOMBRE, s.FECHA_INICIO, s.FECHA_FIN" +
+                   "  ORDER BY s.FECHA_INICIO DESC, s.ID DESC" +
+                   "  FETCH FIRST :limite ROWS ONLY" +
+                   ") ORDER BY FECHA_INICIO, ID",
+           nativeQuery = true)
+    List<Object[]> findVelocityByEquipo(@Param("limite") int limite,
+                                        @Param("equipoId") Long equipoId,
+                                        @Param("doneIds") Collection<Long> doneIds);
 } 
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.borkacle.repository;
+
+import java.time.OffsetDateTime;
+
+// Proyeccion del detalle de una tarea (GET /api/tasks/{id}), leida con un solo join
+public interface TareaDetalle {
+    Long getId();
+    String getTitulo();
+    String getDescripcion();
+    String getEstado();
+    String getPrioridad();
+    String getAsignadoA();
+    Long getProyectoId();
+    String getSprint();
+    OffsetDateTime getFechaCreacion();
+    OffsetDateTime getFechaActualizacion();
+    Double getTiempoEstimado();
+    Double getTiempoReal();
+}
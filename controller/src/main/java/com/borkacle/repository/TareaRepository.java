@@ -3,12 +3,22 @@ package com.borkacle.repository;
 import com.borkacle.model.Tarea;
 import com.borkacle.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
 
 @Repository
 public interface TareaRepository extends JpaRepository<Tarea, Long> {
@@ -28,13 +38,14 @@ public interface TareaRepository extends JpaRepository<Tarea, Long> {
     List<Tarea> findByAsignadoA(Usuario usuario);
     List<Tarea> findByEstadoId(Long estadoId);
 
-    @Query("SELECT t.id, t.titulo, t.descripcion, t.fechaCreacion, e.nombre as estadoNombre " +
+    // La descripcion llega como avance de 200 caracteres (VARCHAR2), sin localizadores de LOB
+    @Query("SELECT t.id, t.titulo, FUNCTION('DBMS_LOB.SUBSTR', t.descripcion, 200, 1), t.fechaCreacion, e.nombre as estadoNombre " +
            "FROM Tarea t " +
            "JOIN t.estado e " +
            "ORDER BY t.fechaCreacion DESC")
     List<Object[]> findAllWithEstado();
 
-    @Query("SELECT t.id, t.titulo, t.descripcion, t.fechaCreacion, e.nombre as estadoNombre, u.nombre as usuarioNombre " +
+    @Query("SELECT t.id, t.titulo, FUNCTION('DBMS_LOB.SUBSTR', t.descripcion, 200, 1), t.fechaCreacion, e.nombre as estadoNombre, u.nombre as usuarioNombre " +
            "FROM Tarea t " +
            "LEFT JOIN t.estado e " +
            "LEFT JOIN t.asignadoA u " +
@@ -43,4 +54,102 @@ public interface TareaRepository extends JpaRepository<Tarea, Long> {
 
     @Query("SELECT DISTINCT t FROM Tarea t LEFT JOIN FETCH t.asignadoA LEFT JOIN FETCH t.sprint LEFT JOIN FETCH t.estado")
     List<Tarea> findAllWithRelations();
-} 
\ No newline at end of file
+
+    // Lo que cada tarea aporta a los KPIs, leido con un cursor para cargar el almacen columnar del cubo:
+    // [tareaId, usuarioId, equipoId (puede ser null), sprintId, horasEstimadas, horasReales, estadoId]
+    @QueryHints(@QueryHint(name = FETCH_SIZE, value = "1000"))
+    @Query("SELECT t.id, u.id, e.id, s.id, " +
+           "COALESCE(t.tiempoEstimado, 0), " +
+           "COALESCE(t.tiempoReal, 0), " +
+           "t.estado.id " +
+           "FROM Tarea t " +
+           "JOIN t.asignadoA u " +
+           "LEFT JOIN u.equipo e " +
+           "JOIN t.sprint s")
+    Stream<Object[]> streamContribucionesKpi();
+
+    // Huella de las escrituras sobre TAREAS: [ultima fechaActualizacion, total de tareas]
+    @Query("SELECT MAX(t.fechaActualizacion), COUNT(t) FROM Tarea t")
+    List<Object[]> findHuellaEscrituras();
+
+    // Detalle de una tarea con sus nombres relacionados en una sola consulta
+    @Query("SELECT t.id AS id, t.titulo AS titulo, t.descripcion AS descripcion, " +
+           "e.nombre AS estado, p.nombre AS prioridad, u.nombre AS asignadoA, t.proyectoId AS proyectoId, " +
+           "s.nombre AS sprint, t.fechaCreacion AS fechaCreacion, t.fechaActualizacion AS fechaActualizacion, " +
+           "t.tiempoEstimado AS tiempoEstimado, t.tiempoReal AS tiempoReal " +
+           "FROM Tarea t " +
+           "LEFT JOIN t.estado e " +
+           "LEFT JOIN t.prioridad p " +
+           "LEFT JOIN t.asignadoA u " +
+           "LEFT JOIN t.sprint s " +
+           "WHERE t.id = :id")
+    Optional<TareaDetalle> findDetalleById(@Param("id") Long id);
+
+    // Tarjetas del tablero de todas las tareas. Sin entidades ni CLOB: la descripcion se corta
+    // a 200 caracteres con DBMS_LOB.SUBSTR
+    @Query("SELECT t.id AS id, t.version AS version, t.titulo AS titulo, t.tipo AS tipo, " +
+           "e.id AS estadoId, p.id AS prioridadId, u.nombre AS asignadoA, " +
+           "FUNCTION('DBMS_LOB.SUBSTR', t.descripcion, 200, 1) AS descripcionPreview " +
+           "FROM Tarea t " +
+           "LEFT JOIN t.estado e " +
+           "LEFT JOIN t.prioridad p " +
+           "LEFT JOIN t.asignadoA u")
+    List<TareaTablero> findTablero();
+
+    // Las mismas tarjetas para el tablero de un sprint, con el predicado directo sobre SPRINT_ID
+    @Query("SELECT t.id AS id, t.version AS version, t.titulo AS titulo, t.tipo AS tipo, " +
+           "e.id AS estadoId, p.id AS prioridadId, u.nombre AS asignadoA, " +
+           "FUNCTION('DBMS_LOB.SUBSTR', t.descripcion, 200, 1) AS descripcionPreview " +
+           "FROM Tarea t " +
+           "LEFT JOIN t.estado e " +
+           "LEFT JOIN t.prioridad p " +
+           "LEFT JOIN t.asignadoA u " +
+           "WHERE t.sprint.id = :sprintId")
+    List<TareaTablero> findTableroBySprintId(@Param("sprintId") Long sprintId);
+
+    // Texto indexado por la busqueda (BusquedaTareas), leido con un cursor: [id, titulo, descripcion]
+    @QueryHints(@QueryHint(name = FETCH_SIZE, value = "500"))
+    @Query("SELECT t.id, t.titulo, t.descripcion FROM Tarea t")
+    Stream<Object[]> streamTextoBusqueda();
+
+    // Lo mismo para unas tareas concretas (maximo 1000 ids por llamada)
+    @Query("SELECT t.id, t.titulo, t.descripcion FROM Tarea t WHERE t.id IN (:ids)")
+    List<Object[]> findTextoBusquedaByIds(@Param("ids") Collection<Long> ids);
+
+    // Columnas del listado para unas tareas concretas, sin orden (maximo 1000 ids por llamada)
+    @Query("SELECT t.id AS id, t.titulo AS titulo, e.nombre AS estado, p.nombre AS prioridad, " +
+           "u.nombre AS asignadoA, s.id AS sprintId, s.nombre AS sprintNombre, t.fechaCreacion AS fechaCreacion " +
+           "FROM Tarea t " +
+           "LEFT JOIN t.estado e " +
+           "LEFT JOIN t.prioridad p " +
+           "LEFT JOIN t.asignadoA u " +
+           "LEFT JOIN t.sprint s " +
+           "WHERE t.id IN (:ids)")
+    List<TareaResumen> findResumenesByIds(@Param("ids") Collection<Long> ids);
+
+    // Transicion de estado con control optimista: escribe solo si VERSION no ha cambiado desde que
+    // el cliente leyo la tarea. Un UPDATE condicional, sin leer antes ni bloquear la fila.
+    // 0 filas = la tarea no existe o alguien mas la cambio (ver findVersionById)
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE TAREAS SET ESTADO_ID = :estadoId, FECHA_ACTUALIZACION = :fecha, VERSION = VERSION + 1 " +
+                   "WHERE ID = :id AND VERSION = :version",
+           nativeQuery = true)
+    int updateEstadoSiVersion(@Param("id") Long id,
+                              @Param("estadoId") Long estadoId,
+                              @Param("version") Long version,
+                              @Param("fecha") OffsetDateTime fecha);
+
+    // Igual sin comprobar la version, para clientes que no la envian (la ultima escritura gana)
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE TAREAS SET ESTADO_ID = :estadoId, FECHA_ACTUALIZACION = :fecha, VERSION = VERSION + 1 " +
+                   "WHERE ID = :id",
+           nativeQuery = true)
+    int updateEstado(@Param("id") Long id,
+                     @Param("estadoId") Long estadoId,
+                     @Param("fecha") OffsetDateTime fecha);
+
+    @Query("SELECT t.version FROM Tarea t WHERE t.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+}
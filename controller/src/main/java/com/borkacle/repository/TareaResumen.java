@@ -0,0 +1,16 @@
+package com.borkacle.repository;
+
+import java.time.OffsetDateTime;
+
+// Proyeccion de una fila del listado de tareas: solo las columnas que se muestran,
+// leidas con un join y sin entidades en el contexto de persistencia
+public interface TareaResumen {
+    Long getId();
+    String getTitulo();
+    String getEstado();
+    String getPrioridad();
+    String getAsignadoA();
+    Long getSprintId();
+    String getSprintNombre();
+    OffsetDateTime getFechaCreacion();
+}
@@ -0,0 +1,15 @@
+package com.borkacle.repository;
+
+// Proyeccion de una tarjeta de los tableros (/api/tareas/board y /api/sprints/{id}): ids de
+// estado y prioridad para agrupar, y un avance de la descripcion cortado en la base de datos
+// en lugar del CLOB completo
+public interface TareaTablero {
+    Long getId();
+    Long getVersion();
+    String getTitulo();
+    String getTipo();
+    Long getEstadoId();
+    Long getPrioridadId();
+    String getAsignadoA();
+    String getDescripcionPreview();
+}
@@ -2,14 +2,36 @@ package com.borkacle.repository;
 
 import com.borkacle.model.Usuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
 
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     // Methods from bot
     Optional<Usuario> findByTelegramId(String telegramId);
+    // Cacheable en la cache de consultas cuando el perfil l2cache esta activo (cada login y cada
+    // request autenticado buscan al usuario por email)
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
     Optional<Usuario> findByEmail(String email);
     Boolean existsByEmail(String email);
+
+    // Solo el rol, para revisar los tokens ya emitidos sin cargar el usuario ni su equipo
+    @Query("SELECT u.rol FROM Usuario u WHERE u.id = :id")
+    Optional<String> findRolById(@Param("id") Long id);
+
+    // Solo id y nombre, sin cargar el equipo de cada usuario. Se lee con un cursor:
+    // debe consumirse dentro de una transaccion y cerrarse
+    @QueryHints(@QueryHint(name = FETCH_SIZE, value = "500"))
+    @Query("SELECT u.id, u.nombre FROM Usuario u ORDER BY u.id")
+    Stream<Object[]> streamAllIdAndNombre();
 } 
\ No newline at end of file
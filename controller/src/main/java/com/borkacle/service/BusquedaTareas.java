@@ -0,0 +1,268 @@
+package com.borkacle.service;
+
+import com.borkacle.model.Tarea;
+import com.borkacle.repository.TareaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Busqueda de texto sobre titulo y descripcion de las tareas, con un indice invertido en memoria
+// (IndiceBusqueda). TareaService reindexa cada tarea que escribe al confirmar la transaccion; las
+// escrituras que no traen el texto completo se releen por id unos segundos despues, y una
+// reconstruccion periodica desde TAREAS recoge lo que escriben otros procesos (por ejemplo el bot).
+@Component
+public class BusquedaTareas {
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaTareas.class);
+
+    // Oracle no admite mas de 1000 expresiones en una lista IN
+    private static final int MAX_IN_LIST = 1000;
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${busqueda.enabled:true}")
+    private boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndiceBusqueda indice = new IndiceBusqueda(0);
+    private volatile boolean cargado = false;
+    private final Set<Long> pendientes = ConcurrentHashMap.newKeySet();
+    private int tareasCargadas = 0;
+
+    // Escrituras aplicadas mientras se reconstruye el indice, para repetirlas sobre el nuevo
+    // (protegido por lock)
+    private List<Object[]> diario;
+
+    // Pagina de resultados: ids de tarea en orden de relevancia y el cursor de la siguiente
+    // pagina (null si no hay mas)
+    public static final class Pagina {
+        private final List<Long> tareaIds;
+        private final String siguienteCursor;
+
+        Pagina(List<Long> tareaIds, String siguienteCursor) {
+            this.tareaIds = tareaIds;
+            this.siguienteCursor = siguienteCursor;
+        }
+
+        public List<Long> getTareaIds() {
+            return tareaIds;
+        }
+
+        public String getSiguienteCursor() {
+            return siguienteCursor;
+        }
+    }
+
+    // --- Escrituras --- //
+
+    // Reindexa la tarea cuando la transaccion actual confirma (o de inmediato si no hay transaccion)
+    public void registrar(Tarea tarea) {
+        if (enabled && tarea != null && tarea.getId() != null) {
+            long tareaId = tarea.getId();
+            String titulo = tarea.getTitulo();
+            String descripcion = tarea.getDescripcion();
+            alConfirmar(() -> aplicar(tareaId, titulo, descripcion));
+        }
+    }
+
+    // Para escrituras que no tienen el texto completo de la tarea: se relee en reindexarPendientes
+    public void marcarPendiente(Long tareaId) {
+        if (enabled && tareaId != null) {
+            alConfirmar(() -> pendientes.add(tareaId));
+        }
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    // titulo y descripcion null = la tarea ya no existe
+    private void aplicar(long tareaId, String titulo, String descripcion) {
+        lock.writeLock().lock();
+        try {
+            poner(indice, tareaId, titulo, descripcion);
+            if (diario != null) {
+                diario.add(new Object[]{tareaId, titulo, descripcion});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void poner(IndiceBusqueda indice, long tareaId, String titulo, String descripcion) {
+        if (titulo == null && descripcion == null) {
+            indice.quitar(tareaId);
+        } else {
+            indice.poner(tareaId, titulo, descripcion);
+        }
+    }
+
+    // --- Lecturas --- //
+
+    public boolean isDisponible() {
+        return enabled && cargado;
+    }
+
+    // Una pagina de resultados para la consulta. El cursor es el que devolvio la pagina anterior;
+    // IllegalArgumentException si no es valido
+    public Pagina buscar(String consulta, String cursor, int limite) {
+        IndiceBusqueda.Resultado desde = cursor != null && !cursor.isEmpty() ? leerCursor(cursor) : null;
+        List<IndiceBusqueda.Resultado> resultados;
+        lock.readLock().lock();
+        try {
+            // Uno extra para saber si hay otra pagina
+            resultados = indice.buscar(consulta, desde, limite + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        boolean hayMas = resultados.size() > limite;
+        List<Long> tareaIds = new ArrayList<>(Math.min(resultados.size(), limite));
+        for (int i = 0; i < resultados.size() && i < limite; i++) {
+            tareaIds.add(resultados.get(i).tareaId);
+        }
+        String siguiente = hayMas ? escribirCursor(resultados.get(limite - 1)) : null;
+        return new Pagina(tareaIds, siguiente);
+    }
+
+    // El puntaje va con sus bits exactos para que el keyset no pierda ni repita resultados
+    private static String escribirCursor(IndiceBusqueda.Resultado r) {
+        return Integer.toHexString(Float.floatToIntBits(r.puntaje)) + "." + Long.toHexString(r.tareaId);
+    }
+
+    private static IndiceBusqueda.Resultado leerCursor(String cursor) {
+        String[] partes = cursor.split("\\.", 2);
+        if (partes.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            return new IndiceBusqueda.Resultado(
+                Long.parseLong(partes[1], 16),
+                Float.intBitsToFloat(Integer.parseUnsignedInt(partes[0], 16)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    // --- Mantenimiento --- //
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarInicial() {
+        if (enabled) {
+            reconstruir();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${busqueda.rebuild-ms:1800000}", initialDelayString = "${busqueda.rebuild-ms:1800000}")
+    public void reconstruccionPeriodica() {
+        if (enabled) {
+            reconstruir();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${busqueda.pending-check-ms:2000}")
+    public void reindexarPendientes() {
+        if (!enabled || pendientes.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pendientes);
+        pendientes.removeAll(ids);
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                for (int desde = 0; desde < ids.size(); desde += MAX_IN_LIST) {
+                    List<Long> bloque = ids.subList(desde, Math.min(desde + MAX_IN_LIST, ids.size()));
+                    Set<Long> sinFila = new HashSet<>(bloque);
+                    for (Object[] row : tareaRepository.findTextoBusquedaByIds(bloque)) {
+                        aplicar((Long) row[0], (String) row[1], (String) row[2]);
+                        sinFila.remove(row[0]);
+                    }
+                    for (Long tareaId : sinFila) {
+                        aplicar(tareaId, null, null);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            logger.error("BusquedaTareas: Error al reindexar {} tareas", ids.size(), e);
+            pendientes.addAll(ids);
+        }
+    }
+
+    // Construye un indice nuevo desde TAREAS (sin los documentos borrados que acumula el actual)
+    // y lo cambia por el actual, repitiendo antes las escrituras que llegaron mientras tanto
+    public synchronized void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            diario = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            IndiceBusqueda nuevo = new IndiceBusqueda(tareasCargadas);
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                try (Stream<Object[]> filas = tareaRepository.streamTextoBusqueda()) {
+                    filas.forEach(row -> nuevo.poner((Long) row[0], (String) row[1], (String) row[2]));
+                }
+            });
+
+            int repetidas;
+            lock.writeLock().lock();
+            try {
+                repetidas = diario.size();
+                for (Object[] escritura : diario) {
+                    poner(nuevo, (Long) escritura[0], (String) escritura[1], (String) escritura[2]);
+                }
+                indice = nuevo;
+            } finally {
+                diario = null;
+                lock.writeLock().unlock();
+            }
+            tareasCargadas = nuevo.size();
+            cargado = true;
+            logger.info("BusquedaTareas: Indice reconstruido con {} tareas en {} ms ({} escrituras repetidas)",
+                tareasCargadas, System.currentTimeMillis() - inicio, repetidas);
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                diario = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.error("BusquedaTareas: Error al reconstruir el indice de busqueda", e);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.borkacle.service;
+
+import com.borkacle.model.Equipo;
+import com.borkacle.model.Estado;
+import com.borkacle.model.Prioridad;
+import com.borkacle.model.Sprint;
+import com.borkacle.repository.EquipoRepository;
+import com.borkacle.repository.EstadoRepository;
+import com.borkacle.repository.PrioridadRepository;
+import com.borkacle.repository.SprintRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Cache en memoria de las tablas de referencia (ESTADOS, PRIORIDADES, EQUIPOS y SPRINTS), que
+// tienen pocas filas y casi no cambian. Cada tabla se carga completa la primera vez que se usa;
+// los servicios que la modifican la invalidan y un refresco periodico recoge los cambios hechos
+// por otros procesos. Un id que no esta se busca por clave primaria (ver Catalogo).
+//
+// Las entidades son compartidas y estan fuera de cualquier contexto de persistencia: sirven para
+// leer y para asignarlas como referencia (tarea.setEstado(...)), no para modificarlas. Las
+// colecciones lazy (Equipo.miembros) no estan inicializadas.
+//
+// Metricas: referencia.cache{catalogo=estados|prioridades|equipos|sprints, resultado=hit|miss}
+@Component
+public class DatosReferencia {
+    private static final Logger logger = LoggerFactory.getLogger(DatosReferencia.class);
+
+    @Autowired
+    private EstadoRepository estadoRepository;
+
+    @Autowired
+    private PrioridadRepository prioridadRepository;
+
+    @Autowired
+    private EquipoRepository equipoRepository;
+
+    @Autowired
+    private SprintRepository sprintRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Catalogo<Estado> estados;
+    private Catalogo<Prioridad> prioridades;
+    private Catalogo<Equipo> equipos;
+    private Catalogo<Sprint> sprints;
+
+    // Limite de busquedas fallidas recordadas por catalogo; pasado el limite un id inexistente
+    // se sigue buscando por clave primaria
+    private static final int MAX_AUSENTES = 10000;
+
+    @PostConstruct
+    void inicializar() {
+        estados = new Catalogo<>("estados", estadoRepository::findAll, estadoRepository::findById, Estado::getId, Estado::getNombre);
+        prioridades = new Catalogo<>("prioridades", prioridadRepository::findAll, prioridadRepository::findById, Prioridad::getId, Prioridad::getNombre);
+        equipos = new Catalogo<>("equipos", equipoRepository::findAll, equipoRepository::findById, Equipo::getId, Equipo::getNombre);
+        sprints = new Catalogo<>("sprints", sprintRepository::findAll, sprintRepository::findById, Sprint::getId, Sprint::getNombre);
+    }
+
+    // --- Lecturas --- //
+
+    public Optional<Estado> estado(Long id) {
+        return estados.porId(id);
+    }
+
+    public Optional<Estado> estadoPorNombre(String nombre) {
+        return estados.porNombre(nombre);
+    }
+
+    public Optional<Prioridad> prioridad(Long id) {
+        return prioridades.porId(id);
+    }
+
+    public Optional<Prioridad> prioridadPorNombre(String nombre) {
+        return prioridades.porNombre(nombre);
+    }
+
+    public Optional<Equipo> equipo(Long id) {
+        return equipos.porId(id);
+    }
+
+    public Collection<Equipo> equipos() {
+        return equipos.todos();
+    }
+
+    public Optional<Sprint> sprint(Long id) {
+        return sprints.porId(id);
+    }
+
+    // --- Invalidacion --- //
+
+    public void invalidarEstados() {
+        estados.invalidar();
+    }
+
+    public void invalidarPrioridades() {
+        prioridades.invalidar();
+    }
+
+    public void invalidarEquipos() {
+        equipos.invalidar();
+    }
+
+    public void invalidarSprints() {
+        sprints.invalidar();
+    }
+
+    @Scheduled(fixedDelayString = "${referencia.refresh-ms:600000}", initialDelayString = "${referencia.refresh-ms:600000}")
+    public void refrescar() {
+        estados.invalidar();
+        prioridades.invalidar();
+        equipos.invalidar();
+        sprints.invalidar();
+    }
+
+    // Una tabla de referencia: foto inmutable por id y por nombre, reemplazada completa al recargar.
+    // Solo la primera lectura (o la primera despues de invalidar) carga la tabla entera. Un id que
+    // no esta en la foto se busca por clave primaria y, si no existe, se recuerda como ausente
+    // hasta la siguiente recarga; un nombre que no esta se responde desde la foto sin consultar.
+    // Asi un id inexistente repetido no provoca una lectura de toda la tabla en cada peticion.
+    private final class Catalogo<T> {
+        private final String nombre;
+        private final Supplier<List<T>> cargar;
+        private final Function<Long, Optional<T>> buscarPorId;
+        private final Function<T, Long> idDe;
+        private final Function<T, String> nombreDe;
+        private final Counter aciertos;
+        private final Counter fallos;
+        private volatile Foto<T> foto;
+
+        Catalogo(String nombre, Supplier<List<T>> cargar, Function<Long, Optional<T>> buscarPorId,
+                 Function<T, Long> idDe, Function<T, String> nombreDe) {
+            this.nombre = nombre;
+            this.cargar = cargar;
+            this.buscarPorId = buscarPorId;
+            this.idDe = idDe;
+            this.nombreDe = nombreDe;
+            this.aciertos = Counter.builder("referencia.cache").tag("catalogo", nombre).tag("resultado", "hit")
+                .description("Lookups served from the reference-data cache").register(meterRegistry);
+            this.fallos = Counter.builder("referencia.cache").tag("catalogo", nombre).tag("resultado", "miss")
+                .description("Lookups that had to read the table").register(meterRegistry);
+        }
+
+        Optional<T> porId(Long id) {
+            if (id == null) {
+                return Optional.empty();
+            }
+            Foto<T> f = actual();
+            T valor = f.porId.get(id);
+            if (valor != null || f.idsAusentes.contains(id)) {
+                aciertos.increment();
+                return Optional.ofNullable(valor);
+            }
+            // Una fila nueva escrita por otro proceso, o un id que no existe: una sola fila
+            fallos.increment();
+            Optional<T> fila = buscarPorId.apply(id);
+            if (fila.isPresent()) {
+                agregar(f, fila.get());
+            } else if (f.idsAusentes.size() < MAX_AUSENTES) {
+                f.idsAusentes.add(id);
+            }
+            return fila;
+        }
+
+        Optional<T> porNombre(String nombre) {
+            if (nombre == null) {
+                return Optional.empty();
+            }
+            aciertos.increment();
+            return Optional.ofNullable(actual().porNombre.get(nombre));
+        }
+
+        Collection<T> todos() {
+            aciertos.increment();
+            return actual().porId.values();
+        }
+
+        void invalidar() {
+            foto = null;
+        }
+
+        private Foto<T> actual() {
+            Foto<T> f = foto;
+            if (f != null) {
+                return f;
+            }
+            fallos.increment();
+            return recargar();
+        }
+
+        // Carga completa; solo cuando no hay foto (primer uso o despues de invalidar)
+        private synchronized Foto<T> recargar() {
+            Foto<T> f = foto;
+            if (f != null) {
+                return f;
+            }
+            List<T> filas = cargar.get();
+            Map<Long, T> porId = new HashMap<>();
+            Map<String, T> porNombre = new HashMap<>();
+            for (T fila : filas) {
+                porId.put(idDe.apply(fila), fila);
+                porNombre.putIfAbsent(nombreDe.apply(fila), fila);
+            }
+            f = new Foto<>(Collections.unmodifiableMap(porId), Collections.unmodifiableMap(porNombre));
+            foto = f;
+            logger.debug("DatosReferencia: {} {} cargados", filas.size(), nombre);
+            return f;
+        }
+
+        // Una fila que aparecio despues de la carga: foto nueva con la fila agregada
+        private synchronized void agregar(Foto<T> vista, T fila) {
+            if (foto != vista) {
+                return; // Ya se recargo o invalido
+            }
+            Map<Long, T> porId = new HashMap<>(vista.porId);
+            Map<String, T> porNombre = new HashMap<>(vista.porNombre);
+            porId.put(idDe.apply(fila), fila);
+            porNombre.putIfAbsent(nombreDe.apply(fila), fila);
+            foto = new Foto<>(Collections.unmodifiableMap(porId), Collections.unmodifiableMap(porNombre));
+        }
+    }
+
+    private static final class Foto<T> {
+        private final Map<Long, T> porId;
+        private final Map<String, T> porNombre;
+        // Ids que no encontraron fila, validos mientras dure esta foto
+        private final Set<Long> idsAusentes = ConcurrentHashMap.newKeySet();
+
+        private Foto(Map<Long, T> porId, Map<String, T> porNombre) {
+            this.porId = porId;
+            this.porNombre = porNombre;
+        }
+    }
+}
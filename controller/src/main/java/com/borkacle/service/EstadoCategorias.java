@@ -0,0 +1,117 @@
+package com.borkacle.service;
+
+import com.borkacle.model.Estado;
+import com.borkacle.model.EstadoCategoria;
+import com.borkacle.repository.EstadoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Registro id de Estado -> categoria, cargado de ESTADOS al arrancar y refrescado
+// periodicamente. Las consultas reciben los ids de una categoria para filtrar con
+// ESTADO_ID IN (...) en lugar de comparar nombres fila por fila. Un estado cuyo nombre no
+// coincide con ninguna categoria cuenta como TODO y se avisa en el log, porque sus tareas
+// nunca contarian como completadas.
+@Component
+public class EstadoCategorias {
+    private static final Logger logger = LoggerFactory.getLogger(EstadoCategorias.class);
+
+    private static final EstadoCategoria[] CATEGORIAS = EstadoCategoria.values();
+
+    // Id que no existe, para que IN (:ids) siga siendo valido cuando una categoria no tiene estados
+    private static final Long SIN_ESTADO = -1L;
+
+    @Autowired
+    private EstadoRepository estadoRepository;
+
+    private volatile Snapshot snapshot;
+
+    // Ultimo aviso de estados sin categoria, para no repetirlo en cada refresco
+    private volatile List<String> sinCategoriaAvisados = List.of();
+
+    private static final class Snapshot {
+        private final LongIndex categoriaPorId;
+        private final Map<EstadoCategoria, List<Long>> idsPorCategoria;
+
+        private Snapshot(LongIndex categoriaPorId, Map<EstadoCategoria, List<Long>> idsPorCategoria) {
+            this.categoriaPorId = categoriaPorId;
+            this.idsPorCategoria = idsPorCategoria;
+        }
+    }
+
+    // Estados sin registrar (o null) cuentan como TODO
+    public EstadoCategoria categoria(Long estadoId) {
+        if (estadoId == null) {
+            return EstadoCategoria.TODO;
+        }
+        int ordinal = actual().categoriaPorId.get(estadoId);
+        return ordinal != LongIndex.AUSENTE ? CATEGORIAS[ordinal] : EstadoCategoria.TODO;
+    }
+
+    public EstadoCategoria categoria(Estado estado) {
+        return estado != null ? categoria(estado.getId()) : EstadoCategoria.TODO;
+    }
+
+    // Ids de los estados de una categoria, para usar como parametro de IN (:ids); nunca vacio
+    public List<Long> ids(EstadoCategoria categoria) {
+        List<Long> ids = actual().idsPorCategoria.get(categoria);
+        return ids.isEmpty() ? List.of(SIN_ESTADO) : ids;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarInicial() {
+        refrescar();
+    }
+
+    @Scheduled(fixedDelayString = "${estados.refresh-ms:600000}", initialDelayString = "${estados.refresh-ms:600000}")
+    public void refrescar() {
+        List<Estado> estados = estadoRepository.findAll();
+        LongIndex categoriaPorId = new LongIndex(estados.size());
+        Map<EstadoCategoria, List<Long>> idsPorCategoria = new EnumMap<>(EstadoCategoria.class);
+        for (EstadoCategoria c : CATEGORIAS) {
+            idsPorCategoria.put(c, new ArrayList<>());
+        }
+        List<String> sinCategoria = new ArrayList<>();
+        for (Estado estado : estados) {
+            EstadoCategoria c = EstadoCategoria.reconocer(estado.getNombre());
+            if (c == null) {
+                sinCategoria.add(estado.getId() + " '" + estado.getNombre() + "'");
+                c = EstadoCategoria.TODO;
+            }
+            categoriaPorId.put(estado.getId(), c.ordinal());
+            idsPorCategoria.get(c).add(estado.getId());
+        }
+        snapshot = new Snapshot(categoriaPorId, idsPorCategoria);
+        logger.info("EstadoCategorias: {} estados cargados, completados: {}", estados.size(), idsPorCategoria.get(EstadoCategoria.DONE));
+        if (!sinCategoria.isEmpty() && !sinCategoria.equals(sinCategoriaAvisados)) {
+            logger.warn("EstadoCategorias: estados sin categoria, se tratan como TODO: {}", sinCategoria);
+        }
+        sinCategoriaAvisados = sinCategoria;
+        if (idsPorCategoria.get(EstadoCategoria.DONE).isEmpty()) {
+            logger.warn("EstadoCategorias: ningun estado es DONE, los KPIs no contaran tareas completadas");
+        }
+    }
+
+    // Por si se consulta antes de ApplicationReadyEvent (otro listener de arranque)
+    private Snapshot actual() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refrescar();
+                }
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+}
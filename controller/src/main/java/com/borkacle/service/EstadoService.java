@@ -14,18 +14,19 @@ public class EstadoService {
     @Autowired
     private EstadoRepository estadoRepository;
 
+    @Autowired
+    private DatosReferencia datosReferencia;
+
+    // Served from the reference-data cache: shared instances, read or assign them but do not modify
     public Estado findByNombre(String nombre) {
-        Estado estado = estadoRepository.findByNombre(nombre);
-        if (estado == null) {
-            // Consider throwing a specific exception (e.g., NotFoundException) for APIs
-            throw new RuntimeException("Estado not found with name: " + nombre);
-        }
-        return estado;
+        // Consider throwing a specific exception (e.g., NotFoundException) for APIs
+        return datosReferencia.estadoPorNombre(nombre)
+                .orElseThrow(() -> new RuntimeException("Estado not found with name: " + nombre));
     }
 
     public Estado findById(Long id) {
         // Use orElseThrow or handle Optional appropriately for API context
-        return estadoRepository.findById(id)
+        return datosReferencia.estado(id)
                 .orElseThrow(() -> new RuntimeException("Estado not found with id: " + id));
     }
 
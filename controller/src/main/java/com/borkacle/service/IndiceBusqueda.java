@@ -0,0 +1,365 @@
+package com.borkacle.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+// Indice invertido de titulo y descripcion de las tareas: termino -> lista de (documento, frecuencia).
+// Cada version indexada de una tarea es un documento nuevo; la anterior queda marcada como borrada
+// y desaparece en la siguiente reconstruccion. El diccionario esta ordenado para poder expandir
+// prefijos. Puntaje BM25, con las apariciones en el titulo pesando mas. No es thread-safe;
+// BusquedaTareas lo protege.
+final class IndiceBusqueda {
+    private static final int PESO_TITULO = 3;
+    private static final int MIN_PREFIJO = 2;
+    private static final int MAX_EXPANSIONES = 64;
+    private static final float PESO_PREFIJO = 0.7f;
+    private static final int LARGO_MAXIMO_TERMINO = 40;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final class Postings {
+        int[] docs = new int[2];
+        int[] frecuencias = new int[2];
+        int n;
+
+        void agregar(int doc, int frecuencia) {
+            if (n == docs.length) {
+                docs = Arrays.copyOf(docs, n * 2);
+                frecuencias = Arrays.copyOf(frecuencias, n * 2);
+            }
+            docs[n] = doc;
+            frecuencias[n] = frecuencia;
+            n++;
+        }
+    }
+
+    // Un resultado: tarea y puntaje
+    static final class Resultado {
+        final long tareaId;
+        final float puntaje;
+
+        Resultado(long tareaId, float puntaje) {
+            this.tareaId = tareaId;
+            this.puntaje = puntaje;
+        }
+    }
+
+    // Orden de los resultados: puntaje descendente, y a igual puntaje id descendente
+    static final Comparator<Resultado> ORDEN = Comparator.<Resultado>comparingDouble(r -> r.puntaje)
+        .thenComparingLong(r -> r.tareaId)
+        .reversed();
+
+    private final TreeMap<String, Postings> terminos = new TreeMap<>();
+
+    // Documentos
+    private final LongIndex docPorTarea;
+    private long[] tareaPorDoc;
+    private int[] largo;
+    private final BitSet vivos = new BitSet();
+    private int docs;
+    private int docsVivos;
+    private long largoTotal;
+
+    IndiceBusqueda(int tareasEsperadas) {
+        int capacidad = Math.max(tareasEsperadas, 16);
+        docPorTarea = new LongIndex(capacidad);
+        tareaPorDoc = new long[capacidad];
+        largo = new int[capacidad];
+    }
+
+    int size() {
+        return docsVivos;
+    }
+
+    // Indexa (o reindexa) una tarea
+    void poner(long tareaId, String titulo, String descripcion) {
+        quitar(tareaId);
+
+        Map<String, Integer> frecuencias = new HashMap<>();
+        for (String termino : terminos(titulo)) {
+            frecuencias.merge(termino, PESO_TITULO, Integer::sum);
+        }
+        for (String termino : terminos(descripcion)) {
+            frecuencias.merge(termino, 1, Integer::sum);
+        }
+
+        int doc = docs++;
+        if (doc == tareaPorDoc.length) {
+            int capacidad = doc + (doc >> 1);
+            tareaPorDoc = Arrays.copyOf(tareaPorDoc, capacidad);
+            largo = Arrays.copyOf(largo, capacidad);
+        }
+        tareaPorDoc[doc] = tareaId;
+        docPorTarea.put(tareaId, doc);
+
+        int total = 0;
+        for (Map.Entry<String, Integer> e : frecuencias.entrySet()) {
+            terminos.computeIfAbsent(e.getKey(), k -> new Postings()).agregar(doc, e.getValue());
+            total += e.getValue();
+        }
+        largo[doc] = total;
+        largoTotal += total;
+        vivos.set(doc);
+        docsVivos++;
+    }
+
+    void quitar(long tareaId) {
+        int doc = docPorTarea.get(tareaId);
+        if (doc != LongIndex.AUSENTE && vivos.get(doc)) {
+            vivos.clear(doc);
+            docsVivos--;
+            largoTotal -= largo[doc];
+        }
+    }
+
+    // Tareas que contienen todos los terminos de la consulta (cada uno como palabra completa o como
+    // prefijo), ordenadas por ORDEN y a partir de despues del cursor (null = desde el principio)
+    List<Resultado> buscar(String consulta, Resultado cursor, int limite) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(terminos(consulta)));
+        if (tokens.isEmpty() || docsVivos == 0) {
+            return List.of();
+        }
+
+        // Expansiones de cada token; los tokens con menos documentos se procesan primero
+        List<Map<Postings, Float>> expansiones = new ArrayList<>(tokens.size());
+        List<Integer> tamanos = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Map<Postings, Float> expansion = expandir(token);
+            if (expansion.isEmpty()) {
+                return List.of();
+            }
+            int tamano = 0;
+            for (Postings p : expansion.keySet()) {
+                tamano += p.n;
+            }
+            expansiones.add(expansion);
+            tamanos.add(tamano);
+        }
+        Integer[] orden = new Integer[tokens.size()];
+        for (int i = 0; i < orden.length; i++) {
+            orden[i] = i;
+        }
+        Arrays.sort(orden, Comparator.comparingInt(tamanos::get));
+
+        double largoPromedio = Math.max(1.0, (double) largoTotal / docsVivos);
+        Acumulador acumulado = null;
+        for (int i : orden) {
+            acumulado = puntuar(expansiones.get(i), acumulado, largoPromedio);
+            if (acumulado.n == 0) {
+                return List.of();
+            }
+        }
+
+        // Los mejores `limite` despues del cursor, con un heap que guarda el peor arriba
+        PriorityQueue<Resultado> mejores = new PriorityQueue<>(limite + 1, ORDEN.reversed());
+        for (int i = 0; i < acumulado.n; i++) {
+            Resultado r = new Resultado(tareaPorDoc[acumulado.docs[i]], acumulado.puntajes[i]);
+            if (cursor != null && ORDEN.compare(r, cursor) <= 0) {
+                continue;
+            }
+            mejores.add(r);
+            if (mejores.size() > limite) {
+                mejores.poll();
+            }
+        }
+        List<Resultado> resultados = new ArrayList<>(mejores);
+        resultados.sort(ORDEN);
+        return resultados;
+    }
+
+    // Postings del termino exacto y de los terminos que empiezan con el (estos con menos peso). Si
+    // hay mas de MAX_EXPANSIONES terminos con el prefijo se quedan los que estan en mas documentos,
+    // no los primeros en orden alfabetico, que suelen ser codigos o erratas poco frecuentes
+    private Map<Postings, Float> expandir(String token) {
+        Map<Postings, Float> expansion = new HashMap<>();
+        Postings exacto = terminos.get(token);
+        if (exacto != null) {
+            expansion.put(exacto, 1f);
+        }
+        if (token.length() >= MIN_PREFIJO) {
+            NavigableMap<String, Postings> conPrefijo = terminos.subMap(token, false, token + Character.MAX_VALUE, false);
+            // Heap con el menos frecuente arriba; a igual frecuencia gana el primero en el diccionario
+            PriorityQueue<Map.Entry<String, Postings>> masFrecuentes = new PriorityQueue<>(MAX_EXPANSIONES + 1,
+                Comparator.<Map.Entry<String, Postings>>comparingInt(t -> t.getValue().n)
+                    .thenComparing(Map.Entry::getKey, Comparator.reverseOrder()));
+            for (Map.Entry<String, Postings> termino : conPrefijo.entrySet()) {
+                masFrecuentes.add(termino);
+                if (masFrecuentes.size() > MAX_EXPANSIONES) {
+                    masFrecuentes.poll();
+                }
+            }
+            for (Map.Entry<String, Postings> termino : masFrecuentes) {
+                expansion.put(termino.getValue(), PESO_PREFIJO);
+            }
+        }
+        return expansion;
+    }
+
+    // Documentos vivos y su puntaje acumulado. Se llena en orden de doc, asi que esta ordenado
+    private static final class Acumulador {
+        int[] docs;
+        float[] puntajes;
+        int n;
+
+        Acumulador(int capacidad) {
+            docs = new int[Math.max(capacidad, 16)];
+            puntajes = new float[docs.length];
+        }
+
+        void agregar(int doc, float puntaje) {
+            if (n == docs.length) {
+                docs = Arrays.copyOf(docs, n * 2);
+                puntajes = Arrays.copyOf(puntajes, n * 2);
+            }
+            docs[n] = doc;
+            puntajes[n] = puntaje;
+            n++;
+        }
+    }
+
+    // Puntaje BM25 de un token (el maximo entre sus expansiones) para cada documento vivo. Sin
+    // `previo` mezcla las listas en orden de doc; con `previo` solo busca (a saltos) sus documentos
+    // en cada lista y les suma el puntaje, asi que un termino comun no se recorre completo
+    private Acumulador puntuar(Map<Postings, Float> expansion, Acumulador previo, double largoPromedio) {
+        int k = expansion.size();
+        Postings[] postings = new Postings[k];
+        float[] pesos = new float[k];
+        double[] idf = new double[k];
+        int total = 0;
+        int e = 0;
+        for (Map.Entry<Postings, Float> entrada : expansion.entrySet()) {
+            Postings p = entrada.getKey();
+            postings[e] = p;
+            pesos[e] = entrada.getValue();
+            idf[e] = Math.max(1e-3, Math.log(1 + (docsVivos - p.n + 0.5) / (p.n + 0.5)));
+            total += p.n;
+            e++;
+        }
+        int[] pos = new int[k];
+
+        if (previo != null) {
+            Acumulador acumulado = new Acumulador(previo.n);
+            for (int j = 0; j < previo.n; j++) {
+                int doc = previo.docs[j];
+                float mejor = -1f;
+                for (int i = 0; i < k; i++) {
+                    Postings p = postings[i];
+                    pos[i] = avanzar(p, pos[i], doc);
+                    if (pos[i] < p.n && p.docs[pos[i]] == doc) {
+                        mejor = Math.max(mejor, puntaje(p.frecuencias[pos[i]], doc, idf[i], pesos[i], largoPromedio));
+                    }
+                }
+                if (mejor >= 0) {
+                    acumulado.agregar(doc, previo.puntajes[j] + mejor);
+                }
+            }
+            return acumulado;
+        }
+
+        Acumulador acumulado = new Acumulador(Math.min(total, docs));
+        if (k == 1) {
+            Postings p = postings[0];
+            for (int i = 0; i < p.n; i++) {
+                int doc = p.docs[i];
+                if (vivos.get(doc)) {
+                    acumulado.agregar(doc, puntaje(p.frecuencias[i], doc, idf[0], pesos[0], largoPromedio));
+                }
+            }
+            return acumulado;
+        }
+        PriorityQueue<Integer> cola = new PriorityQueue<>(k, Comparator.comparingInt(i -> postings[i].docs[pos[i]]));
+        for (int i = 0; i < k; i++) {
+            if (postings[i].n > 0) {
+                cola.add(i);
+            }
+        }
+        int docActual = -1;
+        float mejor = -1f;
+        while (!cola.isEmpty()) {
+            int i = cola.poll();
+            Postings p = postings[i];
+            int doc = p.docs[pos[i]];
+            if (doc != docActual) {
+                if (mejor >= 0) {
+                    acumulado.agregar(docActual, mejor);
+                }
+                docActual = doc;
+                mejor = -1f;
+            }
+            if (vivos.get(doc)) {
+                mejor = Math.max(mejor, puntaje(p.frecuencias[pos[i]], doc, idf[i], pesos[i], largoPromedio));
+            }
+            if (++pos[i] < p.n) {
+                cola.add(i);
+            }
+        }
+        if (mejor >= 0) {
+            acumulado.agregar(docActual, mejor);
+        }
+        return acumulado;
+    }
+
+    private float puntaje(int tf, int doc, double idf, float peso, double largoPromedio) {
+        double normal = tf * (K1 + 1) / (tf + K1 * (1 - B + B * largo[doc] / largoPromedio));
+        return (float) (idf * normal) * peso;
+    }
+
+    // Primera posicion desde `desde` con doc >= `doc` (p.n si no hay), con saltos exponenciales
+    // y busqueda binaria en el ultimo tramo
+    private static int avanzar(Postings p, int desde, int doc) {
+        int bajo = desde;
+        int alto = desde;
+        int paso = 1;
+        while (alto < p.n && p.docs[alto] < doc) {
+            bajo = alto + 1;
+            alto = bajo + paso;
+            paso <<= 1;
+        }
+        int fin = Math.min(alto, p.n);
+        while (bajo < fin) {
+            int medio = (bajo + fin) >>> 1;
+            if (p.docs[medio] < doc) {
+                bajo = medio + 1;
+            } else {
+                fin = medio;
+            }
+        }
+        return bajo;
+    }
+
+    // Minusculas, sin acentos, separado por todo lo que no sea letra o digito
+    static List<String> terminos(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return List.of();
+        }
+        String normal = Normalizer.normalize(texto, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        List<String> terminos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i <= normal.length(); i++) {
+            char c = i < normal.length() ? normal.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                actual.append(c);
+            } else if (actual.length() > 0) {
+                if (actual.length() >= MIN_PREFIJO && actual.length() <= LARGO_MAXIMO_TERMINO) {
+                    terminos.add(actual.toString());
+                }
+                actual.setLength(0);
+            }
+        }
+        return terminos;
+    }
+}
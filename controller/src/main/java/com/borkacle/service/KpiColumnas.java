@@ -0,0 +1,206 @@
+package com.borkacle.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+// Almacen columnar de lo que cada tarea aporta a los KPIs: una fila por tarea en arreglos
+// paralelos (indice de usuario, indice de sprint, horas, completada) y mapas densos
+// id -> indice para tareas, usuarios y sprints. No es thread-safe; KpiCube lo protege.
+final class KpiColumnas {
+    private static final double TOLERANCIA = 1e-6;
+    private static final int SIN_FILA = -1;
+
+    // Tareas
+    private final LongIndex filaPorTarea;
+    private long[] tareaIds;
+    private int[] usuario;          // SIN_FILA si la tarea ya no cuenta (sin usuario o sin sprint)
+    private int[] sprint;
+    private double[] horasEstimadas;
+    private double[] horasReales;
+    private final BitSet completada = new BitSet();
+    private int filas;
+
+    // Dimensiones
+    private final LongIndex indiceUsuario;
+    private long[] usuarioIds;
+    private long[] equipoPorUsuario;
+    private int usuarios;
+
+    private final LongIndex indiceSprint;
+    private long[] sprintIds;
+    private int sprints;
+
+    KpiColumnas(int tareasEsperadas) {
+        int capacidad = Math.max(tareasEsperadas, 16);
+        filaPorTarea = new LongIndex(capacidad);
+        tareaIds = new long[capacidad];
+        usuario = new int[capacidad];
+        sprint = new int[capacidad];
+        horasEstimadas = new double[capacidad];
+        horasReales = new double[capacidad];
+        indiceUsuario = new LongIndex(64);
+        usuarioIds = new long[64];
+        equipoPorUsuario = new long[64];
+        indiceSprint = new LongIndex(64);
+        sprintIds = new long[64];
+    }
+
+    // Inserta, reemplaza o (con c == null) anula la fila de una tarea
+    void poner(long tareaId, KpiCube.Contribucion c) {
+        int fila = filaPorTarea.get(tareaId);
+        if (c == null) {
+            if (fila != LongIndex.AUSENTE) {
+                usuario[fila] = SIN_FILA;
+                completada.clear(fila);
+            }
+            return;
+        }
+        if (fila == LongIndex.AUSENTE) {
+            fila = nuevaFila(tareaId);
+        }
+        usuario[fila] = indiceUsuario(c.usuarioId, c.equipoId);
+        sprint[fila] = indiceSprint(c.sprintId);
+        horasEstimadas[fila] = c.horasEstimadas;
+        horasReales[fila] = c.horasReales;
+        completada.set(fila, c.completada);
+    }
+
+    // Cambia solo si la tarea esta completada; tareas sin fila (o que no cuentan) se ignoran
+    void ponerCompletada(long tareaId, boolean valor) {
+        int fila = filaPorTarea.get(tareaId);
+        if (fila != LongIndex.AUSENTE && usuario[fila] != SIN_FILA) {
+            completada.set(fila, valor);
+        }
+    }
+
+    // Recorre todas las filas una vez y entrega una celda por (usuario, sprint) con tareas.
+    // Las celdas se acumulan en arreglos indexados por un slot, sin objetos por tarea.
+    void agregar(Consumer<KpiCube.Celda> consumer) {
+        LongIndex slotPorCelda = new LongIndex(Math.min(filas, 1 << 16));
+        int[] slotUsuario = new int[64];
+        int[] slotSprint = new int[64];
+        double[] estimadas = new double[64];
+        double[] reales = new double[64];
+        int[] completadas = new int[64];
+        int[] totales = new int[64];
+        int slots = 0;
+
+        for (int fila = 0; fila < filas; fila++) {
+            int u = usuario[fila];
+            if (u == SIN_FILA) {
+                continue;
+            }
+            int s = sprint[fila];
+            long clave = ((long) u << 32) | s;
+            int slot = slotPorCelda.get(clave);
+            if (slot == LongIndex.AUSENTE) {
+                slot = slots++;
+                if (slot == totales.length) {
+                    int capacidad = slot * 2;
+                    slotUsuario = Arrays.copyOf(slotUsuario, capacidad);
+                    slotSprint = Arrays.copyOf(slotSprint, capacidad);
+                    estimadas = Arrays.copyOf(estimadas, capacidad);
+                    reales = Arrays.copyOf(reales, capacidad);
+                    completadas = Arrays.copyOf(completadas, capacidad);
+                    totales = Arrays.copyOf(totales, capacidad);
+                }
+                slotPorCelda.put(clave, slot);
+                slotUsuario[slot] = u;
+                slotSprint[slot] = s;
+            }
+            estimadas[slot] += horasEstimadas[fila];
+            reales[slot] += horasReales[fila];
+            if (completada.get(fila)) {
+                completadas[slot]++;
+            }
+            totales[slot]++;
+        }
+
+        for (int slot = 0; slot < slots; slot++) {
+            int u = slotUsuario[slot];
+            consumer.accept(new KpiCube.Celda(
+                usuarioIds[u], equipoPorUsuario[u], sprintIds[slotSprint[slot]],
+                estimadas[slot], reales[slot], completadas[slot], totales[slot]));
+        }
+    }
+
+    // Filas (y equipos de usuario) en que este almacen difiere de otro
+    int diferencias(KpiColumnas otro) {
+        int diferencias = 0;
+        for (int fila = 0; fila < filas; fila++) {
+            if (!igual(fila, otro, otro.filaPorTarea.get(tareaIds[fila]))) {
+                diferencias++;
+            }
+        }
+        for (int fila = 0; fila < otro.filas; fila++) {
+            if (otro.usuario[fila] != SIN_FILA && filaPorTarea.get(otro.tareaIds[fila]) == LongIndex.AUSENTE) {
+                diferencias++;
+            }
+        }
+        for (int u = 0; u < usuarios; u++) {
+            int otroU = otro.indiceUsuario.get(usuarioIds[u]);
+            if (otroU != LongIndex.AUSENTE && otro.equipoPorUsuario[otroU] != equipoPorUsuario[u]) {
+                diferencias++;
+            }
+        }
+        return diferencias;
+    }
+
+    private boolean igual(int fila, KpiColumnas otro, int otraFila) {
+        boolean cuenta = usuario[fila] != SIN_FILA;
+        boolean otraCuenta = otraFila != LongIndex.AUSENTE && otro.usuario[otraFila] != SIN_FILA;
+        if (!cuenta || !otraCuenta) {
+            return cuenta == otraCuenta;
+        }
+        return usuarioIds[usuario[fila]] == otro.usuarioIds[otro.usuario[otraFila]]
+            && sprintIds[sprint[fila]] == otro.sprintIds[otro.sprint[otraFila]]
+            && Math.abs(horasEstimadas[fila] - otro.horasEstimadas[otraFila]) < TOLERANCIA
+            && Math.abs(horasReales[fila] - otro.horasReales[otraFila]) < TOLERANCIA
+            && completada.get(fila) == otro.completada.get(otraFila);
+    }
+
+    private int nuevaFila(long tareaId) {
+        int fila = filas++;
+        if (fila == tareaIds.length) {
+            int capacidad = fila + (fila >> 1);
+            tareaIds = Arrays.copyOf(tareaIds, capacidad);
+            usuario = Arrays.copyOf(usuario, capacidad);
+            sprint = Arrays.copyOf(sprint, capacidad);
+            horasEstimadas = Arrays.copyOf(horasEstimadas, capacidad);
+            horasReales = Arrays.copyOf(horasReales, capacidad);
+        }
+        tareaIds[fila] = tareaId;
+        filaPorTarea.put(tareaId, fila);
+        return fila;
+    }
+
+    // El equipo se guarda por usuario: todas sus tareas cuentan para su equipo mas reciente
+    private int indiceUsuario(long usuarioId, long equipoId) {
+        int u = indiceUsuario.get(usuarioId);
+        if (u == LongIndex.AUSENTE) {
+            u = usuarios++;
+            if (u == usuarioIds.length) {
+                usuarioIds = Arrays.copyOf(usuarioIds, u * 2);
+                equipoPorUsuario = Arrays.copyOf(equipoPorUsuario, u * 2);
+            }
+            usuarioIds[u] = usuarioId;
+            indiceUsuario.put(usuarioId, u);
+        }
+        equipoPorUsuario[u] = equipoId;
+        return u;
+    }
+
+    private int indiceSprint(long sprintId) {
+        int s = indiceSprint.get(sprintId);
+        if (s == LongIndex.AUSENTE) {
+            s = sprints++;
+            if (s == sprintIds.length) {
+                sprintIds = Arrays.copyOf(sprintIds, s * 2);
+            }
+            sprintIds[s] = sprintId;
+            indiceSprint.put(sprintId, s);
+        }
+        return s;
+    }
+}
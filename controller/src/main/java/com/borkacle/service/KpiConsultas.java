@@ -0,0 +1,143 @@
+package com.borkacle.service;
+
+import com.borkacle.controller.payload.KpiFiltro;
+import com.borkacle.model.Equipo;
+import com.borkacle.model.Sprint;
+import com.borkacle.model.Tarea;
+import com.borkacle.model.Usuario;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+
+// Consultas de KPIs con los filtros de /api/kpi. Cada consulta lleva solo los predicados de los
+// filtros que llegan: un "col = :x OR :x IS NULL" obliga a Oracle a un plan que sirva para ambos
+// casos y no usa los indices de SPRINT_ID, ASIGNADO_A ni EQUIPO_ID.
+@Component
+public class KpiConsultas {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // KPIs agregados por equipo y sprint. doneIds son los estados de la categoria DONE (EstadoCategorias):
+    // [equipoId, sprintId, horasEstimadas, horasReales, tareasCompletadas, tareasTotales]
+    public List<Object[]> sumKpisByEquipoAndSprint(KpiFiltro filtro, Collection<Long> doneIds) {
+        return sumKpis(filtro, doneIds, true);
+    }
+
+    // KPIs por usuario y sprint con los mismos filtros (el equipo es el del usuario asignado):
+    // [usuarioId, sprintId, horasEstimadas, horasReales, tareasCompletadas, tareasTotales]
+    public List<Object[]> sumKpisByUsuarioAndSprint(KpiFiltro filtro, Collection<Long> doneIds) {
+        return sumKpis(filtro, doneIds, false);
+    }
+
+    private List<Object[]> sumKpis(KpiFiltro filtro, Collection<Long> doneIds, boolean porEquipo) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Tarea> t = query.from(Tarea.class);
+        Join<Tarea, Usuario> u = t.join("asignadoA");
+        // Por equipo solo cuentan las tareas de usuarios con equipo
+        Join<Usuario, Equipo> e = u.join("equipo", porEquipo ? JoinType.INNER : JoinType.LEFT);
+        Join<Tarea, Sprint> s = t.join("sprint");
+
+        Expression<Integer> completada = cb.<Integer>selectCase()
+            .when(t.get("estado").get("id").in(doneIds), 1)
+            .otherwise(0);
+        Path<Long> filaId = porEquipo ? e.<Long>get("id") : u.<Long>get("id");
+        query.multiselect(filaId, s.get("id"),
+            cb.sum(cb.coalesce(t.<Double>get("tiempoEstimado"), 0.0)),
+            cb.sum(cb.coalesce(t.<Double>get("tiempoReal"), 0.0)),
+            cb.sum(completada),
+            cb.count(t));
+
+        List<Predicate> where = new ArrayList<>();
+        if (filtro.getEquipoId() != null) {
+            where.add(cb.equal(e.get("id"), filtro.getEquipoId()));
+        }
+        if (filtro.getUsuarioId() != null) {
+            where.add(cb.equal(u.get("id"), filtro.getUsuarioId()));
+        }
+        filtrosSprint(cb, s, filtro, where);
+        query.where(where.toArray(new Predicate[0]));
+        query.groupBy(filaId, s.get("id"));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // Sprints de los KPIs: rango de ids y sprints que se traslapan con la ventana de fechas
+    public List<Sprint> sprints(KpiFiltro filtro) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Sprint> query = cb.createQuery(Sprint.class);
+        Root<Sprint> s = query.from(Sprint.class);
+        List<Predicate> where = new ArrayList<>();
+        filtrosSprint(cb, s, filtro, where);
+        query.where(where.toArray(new Predicate[0]));
+        query.orderBy(cb.asc(s.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // Id y nombre de los equipos, limitado a uno si el filtro trae equipoId
+    public List<Object[]> equipos(KpiFiltro filtro) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Equipo> e = query.from(Equipo.class);
+        query.multiselect(e.get("id"), e.get("nombre"));
+        if (filtro.getEquipoId() != null) {
+            query.where(cb.equal(e.get("id"), filtro.getEquipoId()));
+        }
+        query.orderBy(cb.asc(e.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // Id y nombre de los usuarios, filtrados por equipo y/o usuario. Se lee con un cursor:
+    // debe consumirse dentro de una transaccion y cerrarse
+    public Stream<Object[]> streamUsuarios(KpiFiltro filtro) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Usuario> u = query.from(Usuario.class);
+        query.multiselect(u.get("id"), u.get("nombre"));
+        List<Predicate> where = new ArrayList<>();
+        if (filtro.getEquipoId() != null) {
+            where.add(cb.equal(u.get("equipo").get("id"), filtro.getEquipoId()));
+        }
+        if (filtro.getUsuarioId() != null) {
+            where.add(cb.equal(u.get("id"), filtro.getUsuarioId()));
+        }
+        query.where(where.toArray(new Predicate[0]));
+        query.orderBy(cb.asc(u.get("id")));
+        return entityManager.createQuery(query).setHint(FETCH_SIZE, 500).getResultStream();
+    }
+
+    private static void filtrosSprint(CriteriaBuilder cb, From<?, Sprint> s, KpiFiltro filtro, List<Predicate> where) {
+        if (filtro.getSprintDesde() != null) {
+            where.add(cb.ge(s.<Long>get("id"), filtro.getSprintDesde()));
+        }
+        if (filtro.getSprintHasta() != null) {
+            where.add(cb.le(s.<Long>get("id"), filtro.getSprintHasta()));
+        }
+        // Sin fecha de fin o de inicio el sprint sigue abierto por ese lado
+        if (filtro.getFechaDesde() != null) {
+            Path<LocalDate> fechaFin = s.get("fechaFin");
+            where.add(cb.or(cb.greaterThanOrEqualTo(fechaFin, filtro.getFechaDesde()), cb.isNull(fechaFin)));
+        }
+        if (filtro.getFechaHasta() != null) {
+            Path<LocalDate> fechaInicio = s.get("fechaInicio");
+            where.add(cb.or(cb.lessThanOrEqualTo(fechaInicio, filtro.getFechaHasta()), cb.isNull(fechaInicio)));
+        }
+    }
+}
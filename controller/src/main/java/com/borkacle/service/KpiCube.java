@@ -0,0 +1,305 @@
+package com.borkacle.service;
+
+import com.borkacle.model.EstadoCategoria;
+import com.borkacle.model.Tarea;
+import com.borkacle.repository.TareaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Cubo de KPIs en memoria. Guarda lo que aporta cada tarea en un almacen columnar
+// (KpiColumnas) y agrega por (usuario, equipo, sprint) al leer. TareaService actualiza la
+// fila de cada tarea que escribe y una reconciliacion periodica contra TAREAS corrige lo
+// que escriben otros procesos (por ejemplo el bot).
+@Component
+public class KpiCube {
+    private static final Logger logger = LoggerFactory.getLogger(KpiCube.class);
+
+    // Equipo usado para las tareas cuyo usuario no pertenece a ningun equipo
+    public static final long SIN_EQUIPO = 0L;
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EstadoCategorias estadoCategorias;
+
+    @Value("${kpi.cube.enabled:true}")
+    private boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private KpiColumnas columnas = new KpiColumnas(0);
+    private volatile boolean cargado = false;
+    private final AtomicBoolean pendiente = new AtomicBoolean(false);
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong escrituras = new AtomicLong();
+    private int tareasCargadas = 0;
+
+    // --- Celdas --- //
+
+    // Metricas agregadas de un usuario en un sprint
+    public static final class Celda {
+        private final long usuarioId;
+        private final long equipoId;
+        private final long sprintId;
+        private final double horasEstimadas;
+        private final double horasReales;
+        private final int tareasCompletadas;
+        private final int tareasTotales;
+
+        Celda(long usuarioId, long equipoId, long sprintId,
+              double horasEstimadas, double horasReales, int tareasCompletadas, int tareasTotales) {
+            this.usuarioId = usuarioId;
+            this.equipoId = equipoId;
+            this.sprintId = sprintId;
+            this.horasEstimadas = horasEstimadas;
+            this.horasReales = horasReales;
+            this.tareasCompletadas = tareasCompletadas;
+            this.tareasTotales = tareasTotales;
+        }
+
+        public long getUsuarioId() {
+            return usuarioId;
+        }
+
+        public long getEquipoId() {
+            return equipoId;
+        }
+
+        public long getSprintId() {
+            return sprintId;
+        }
+
+        public double getHorasEstimadas() {
+            return horasEstimadas;
+        }
+
+        public double getHorasReales() {
+            return horasReales;
+        }
+
+        public int getTareasCompletadas() {
+            return tareasCompletadas;
+        }
+
+        public int getTareasTotales() {
+            return tareasTotales;
+        }
+    }
+
+    // Lo que una tarea aporta al cubo
+    static final class Contribucion {
+        final long usuarioId;
+        final long equipoId;
+        final long sprintId;
+        final double horasEstimadas;
+        final double horasReales;
+        final boolean completada;
+
+        Contribucion(long usuarioId, long equipoId, long sprintId,
+                     double horasEstimadas, double horasReales, boolean completada) {
+            this.usuarioId = usuarioId;
+            this.equipoId = equipoId;
+            this.sprintId = sprintId;
+            this.horasEstimadas = horasEstimadas;
+            this.horasReales = horasReales;
+            this.completada = completada;
+        }
+    }
+
+    // null si la tarea no cuenta para ningun KPI (sin usuario o sin sprint)
+    private Contribucion contribucion(Tarea t) {
+        if (t.getAsignadoA() == null || t.getSprint() == null) {
+            return null;
+        }
+        long equipoId = t.getAsignadoA().getEquipo() != null ? t.getAsignadoA().getEquipo().getId() : SIN_EQUIPO;
+        return new Contribucion(
+            t.getAsignadoA().getId(),
+            equipoId,
+            t.getSprint().getId(),
+            t.getTiempoEstimado() != null ? t.getTiempoEstimado() : 0,
+            t.getTiempoReal() != null ? t.getTiempoReal() : 0,
+            estadoCategorias.categoria(t.getEstado()) == EstadoCategoria.DONE);
+    }
+
+    // --- Escrituras --- //
+
+    // Reemplaza la fila de la tarea cuando la transaccion actual confirma (o de inmediato si no hay
+    // transaccion). Los valores se toman ahora, con las relaciones de la entidad ya cargadas.
+    public void registrar(Tarea tarea) {
+        if (enabled && tarea != null && tarea.getId() != null) {
+            long tareaId = tarea.getId();
+            Contribucion contribucion = contribucion(tarea);
+            alConfirmar(() -> aplicar(tareaId, contribucion));
+        }
+    }
+
+    // Para transiciones de estado hechas con un UPDATE directo (tablero): la tarea no se carga,
+    // pero el estado basta para saber si pasa a contar como completada
+    public void registrarEstado(Long tareaId, Long estadoId) {
+        if (enabled && tareaId != null) {
+            long id = tareaId;
+            boolean completada = estadoCategorias.categoria(estadoId) == EstadoCategoria.DONE;
+            alConfirmar(() -> aplicarEstado(id, completada));
+        }
+    }
+
+    // Para escrituras de las que no se conocen los valores (por ejemplo actualizaciones masivas):
+    // se corrigen en la siguiente reconciliacion
+    public void marcarPendiente() {
+        if (enabled) {
+            alConfirmar(() -> {
+                pendiente.set(true);
+                version.incrementAndGet();
+            });
+        }
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    private void aplicar(long tareaId, Contribucion contribucion) {
+        lock.writeLock().lock();
+        try {
+            columnas.poner(tareaId, contribucion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        escrituras.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    private void aplicarEstado(long tareaId, boolean completada) {
+        lock.writeLock().lock();
+        try {
+            columnas.ponerCompletada(tareaId, completada);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        escrituras.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    // --- Lecturas --- //
+
+    public boolean isDisponible() {
+        return enabled && cargado;
+    }
+
+    // Cambia con cada escritura aplicada y con cada reconciliacion que encuentra diferencias
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Una celda por (usuario, sprint) con tareas, agregada en una pasada sobre las columnas
+    public void forEachCelda(Consumer<Celda> consumer) {
+        lock.readLock().lock();
+        try {
+            columnas.agregar(consumer);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Reconciliacion --- //
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarInicial() {
+        if (enabled) {
+            reconciliar();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${kpi.cube.reconcile-ms:300000}", initialDelayString = "${kpi.cube.reconcile-ms:300000}")
+    public void reconciliacionPeriodica() {
+        if (enabled) {
+            reconciliar();
+        }
+    }
+
+    // Las escrituras sin valores se corrigen pronto sin esperar a la reconciliacion completa
+    @Scheduled(fixedDelayString = "${kpi.cube.pending-check-ms:5000}")
+    public void reconciliarPendientes() {
+        if (enabled && pendiente.get()) {
+            reconciliar();
+        }
+    }
+
+    public synchronized void reconciliar() {
+        pendiente.set(false);
+        long escriturasIniciales = escrituras.get();
+        try {
+            KpiColumnas nuevas = new KpiColumnas(tareasCargadas);
+            int[] tareas = {0};
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                try (Stream<Object[]> filas = tareaRepository.streamContribucionesKpi()) {
+                    filas.forEach(row -> {
+                        long equipoId = row[2] != null ? (Long) row[2] : SIN_EQUIPO;
+                        nuevas.poner((Long) row[0], new Contribucion(
+                            (Long) row[1], equipoId, (Long) row[3],
+                            ((Number) row[4]).doubleValue(),
+                            ((Number) row[5]).doubleValue(),
+                            estadoCategorias.categoria((Long) row[6]) == EstadoCategoria.DONE));
+                        tareas[0]++;
+                    });
+                }
+            });
+            tareasCargadas = tareas[0];
+
+            int diferencias;
+            lock.writeLock().lock();
+            try {
+                diferencias = nuevas.diferencias(columnas);
+                columnas = nuevas;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (diferencias > 0 || !cargado) {
+                version.incrementAndGet();
+            }
+            if (cargado && diferencias > 0) {
+                logger.info("KpiCube: Reconciliacion corrigio {} tareas", diferencias);
+            }
+            cargado = true;
+
+            // Si se aplicaron escrituras mientras corria la consulta, la foto puede no incluirlas
+            if (escrituras.get() != escriturasIniciales) {
+                pendiente.set(true);
+            }
+        } catch (Exception e) {
+            logger.error("KpiCube: Error al reconciliar el cubo de KPIs", e);
+            pendiente.set(true);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.borkacle.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Cache de las respuestas KPI ya serializadas. Cada entrada guarda el ETag con el que se
+// genero; cuando cambia la version de las tareas (o se invalida por cambios en sprints,
+// usuarios o equipos) el ETag deja de coincidir y la respuesta se vuelve a calcular.
+@Component
+public class KpiResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(KpiResponseCache.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${kpi.response-cache.max-entries:128}")
+    private int maxEntries;
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+
+    // Distinto en cada arranque y en cada replica: la version del cubo y generacion empiezan en 0
+    // en todos los procesos, y sin esto un ETag viejo podria coincidir con otros datos
+    private final String epoca = Long.toHexString(new SecureRandom().nextLong() & Long.MAX_VALUE);
+
+    private static final class Entrada {
+        private final String etag;
+        private final byte[] body;
+
+        private Entrada(String etag, byte[] body) {
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    // ETag fuerte para una variante (endpoint + parametros) y una version de las tareas
+    public String etag(String clave, String version) {
+        return "\"kpi-" + epoca + "-" + Integer.toHexString(clave.hashCode()) + "-" + version + "-" + generacion.get() + "\"";
+    }
+
+    // Devuelve el JSON cacheado para el ETag dado o lo calcula y lo guarda
+    public byte[] obtener(String clave, String etag, Supplier<?> calcular) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null && entrada.etag.equals(etag)) {
+            return entrada.body;
+        }
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(calcular.get());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializing KPI response", e);
+        }
+        if (entradas.size() >= maxEntries && !entradas.containsKey(clave)) {
+            logger.info("KpiResponseCache: Limite de {} entradas alcanzado, se vacia la cache", maxEntries);
+            entradas.clear();
+        }
+        entradas.put(clave, new Entrada(etag, body));
+        return body;
+    }
+
+    // Para cambios que no pasan por las tareas (sprints, usuarios, equipos)
+    public void invalidar() {
+        generacion.incrementAndGet();
+        entradas.clear();
+    }
+}
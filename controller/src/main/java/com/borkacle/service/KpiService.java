@@ -0,0 +1,283 @@
+package com.borkacle.service;
+
+import com.borkacle.controller.payload.KpiFiltro;
+import com.borkacle.controller.payload.KpiPersonaResponse;
+import com.borkacle.controller.payload.KpiPersonaSparseResponse;
+import com.borkacle.controller.payload.KpiResponse;
+import com.borkacle.model.EstadoCategoria;
+import com.borkacle.model.Sprint;
+import com.borkacle.repository.TareaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Motor de KPIs. Si el cubo en memoria esta cargado, las lecturas no tocan TAREAS;
+// si no, todas las celdas se calculan con una sola consulta agregada.
+@Service
+public class KpiService {
+    private static final Logger logger = LoggerFactory.getLogger(KpiService.class);
+
+    @Autowired
+    private TareaRepository tareaRepository;
+
+    @Autowired
+    private KpiConsultas kpiConsultas;
+
+    @Autowired
+    private KpiCube kpiCube;
+
+    @Autowired
+    private EstadoCategorias estadoCategorias;
+
+    // Metricas acumuladas de una celda (equipo o usuario) x sprint
+    private static final class Acumulado {
+        double horasEstimadas;
+        double horasReales;
+        int tareasCompletadas;
+        int tareasTotales;
+    }
+
+    private static final Acumulado VACIO = new Acumulado();
+
+    // Version de las tareas que alimentan los KPIs, usada para los ETag de /api/kpi
+    @Transactional(readOnly = true)
+    public String version() {
+        if (kpiCube.isDisponible()) {
+            return "c" + kpiCube.getVersion();
+        }
+        List<Object[]> huella = tareaRepository.findHuellaEscrituras();
+        Object[] row = huella.isEmpty() ? new Object[] {null, 0L} : huella.get(0);
+        long ultimaActualizacion = row[0] != null ? ((OffsetDateTime) row[0]).toInstant().toEpochMilli() : 0L;
+        return "d" + ultimaActualizacion + "." + ((Number) row[1]).longValue();
+    }
+
+    // Los filtros se aplican en las consultas de equipos, sprints y tareas, de modo que
+    // solo se lee lo que se va a mostrar; con el cubo cargado se filtran sus celdas
+    @Transactional(readOnly = true)
+    public List<KpiResponse> getKpiEquipos(KpiFiltro filtro) {
+        List<Object[]> equipos = kpiConsultas.equipos(filtro);
+        List<Sprint> sprints = sprints(filtro);
+        logger.info("KpiService: Equipos encontrados: {}, Sprints encontrados: {}", equipos.size(), sprints.size());
+
+        // equipoId -> sprintId -> metricas
+        Map<Long, Map<Long, Acumulado>> celdas = new HashMap<>();
+        if (kpiCube.isDisponible()) {
+            Set<Long> sprintIds = sprintIds(sprints);
+            kpiCube.forEachCelda(c -> {
+                if (c.getEquipoId() != KpiCube.SIN_EQUIPO && incluye(filtro, sprintIds, c)) {
+                    sumar(celdas, c.getEquipoId(), c.getSprintId(), c);
+                }
+            });
+        } else {
+            for (Object[] row : kpiConsultas.sumKpisByEquipoAndSprint(
+                    filtro, estadoCategorias.ids(EstadoCategoria.DONE))) {
+                Acumulado a = celda(celdas, (Long) row[0], (Long) row[1]);
+                a.horasEstimadas = ((Number) row[2]).doubleValue();
+                a.horasReales = ((Number) row[3]).doubleValue();
+                a.tareasCompletadas = ((Number) row[4]).intValue();
+                a.tareasTotales = ((Number) row[5]).intValue();
+            }
+        }
+
+        List<KpiResponse> result = new ArrayList<>(equipos.size());
+        for (Object[] equipo : equipos) {
+            Long equipoId = (Long) equipo[0];
+            Map<Long, Acumulado> celdasEquipo = celdas.getOrDefault(equipoId, Map.of());
+
+            KpiResponse kpiResponse = new KpiResponse();
+            kpiResponse.setEquipoId(equipoId);
+            kpiResponse.setEquipoNombre((String) equipo[1]);
+
+            List<KpiResponse.SprintData> sprintDataList = new ArrayList<>(sprints.size());
+            for (Sprint sprint : sprints) {
+                Acumulado a = celdasEquipo.getOrDefault(sprint.getId(), VACIO);
+                KpiResponse.SprintData sprintData = new KpiResponse.SprintData();
+                sprintData.setSprintId(sprint.getId());
+                sprintData.setSprintNombre(sprint.getNombre());
+                sprintData.setHorasEstimadas(a.horasEstimadas);
+                sprintData.setHorasReales(a.horasReales);
+                sprintData.setTareasCompletadas(a.tareasCompletadas);
+                sprintData.setTareasTotales(a.tareasTotales);
+                sprintDataList.add(sprintData);
+            }
+
+            kpiResponse.setSprints(sprintDataList);
+            result.add(kpiResponse);
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public List<KpiPersonaResponse> getKpiPersonas(KpiFiltro filtro) {
+        List<KpiPersonaResponse> result = new ArrayList<>();
+        forEachKpiPersona(filtro, result::add);
+        return result;
+    }
+
+    // Entrega la fila de KPIs de cada usuario segun se lee del cursor de usuarios, sin
+    // construir la lista completa; la memoria depende de las celdas con tareas, no de usuarios x sprints
+    @Transactional(readOnly = true)
+    public void forEachKpiPersona(KpiFiltro filtro, Consumer<KpiPersonaResponse> consumer) {
+        List<Sprint> sprints = sprints(filtro);
+        Map<Long, Map<Long, Acumulado>> celdas = celdasPorUsuario(filtro, sprints);
+
+        try (Stream<Object[]> usuarios = kpiConsultas.streamUsuarios(filtro)) {
+            usuarios.forEach(usuario -> {
+                Long usuarioId = (Long) usuario[0];
+                Map<Long, Acumulado> celdasUsuario = celdas.getOrDefault(usuarioId, Map.of());
+
+                KpiPersonaResponse kpiResponse = new KpiPersonaResponse();
+                kpiResponse.setUsuarioId(usuarioId);
+                kpiResponse.setUsuarioNombre((String) usuario[1]);
+
+                List<KpiPersonaResponse.SprintData> sprintDataList = new ArrayList<>(sprints.size());
+                for (Sprint sprint : sprints) {
+                    Acumulado a = celdasUsuario.getOrDefault(sprint.getId(), VACIO);
+                    KpiPersonaResponse.SprintData sprintData = new KpiPersonaResponse.SprintData();
+                    sprintData.setSprintId(sprint.getId());
+                    sprintData.setSprintNombre(sprint.getNombre());
+                    sprintData.setHorasEstimadas(a.horasEstimadas);
+                    sprintData.setHorasReales(a.horasReales);
+                    sprintData.setTareasCompletadas(a.tareasCompletadas);
+                    sprintData.setTareasTotales(a.tareasTotales);
+                    sprintData.setEficiencia(a.horasReales > 0 ? (a.horasEstimadas / a.horasReales) * 100 : 0);
+                    sprintDataList.add(sprintData);
+                }
+
+                kpiResponse.setSprints(sprintDataList);
+                consumer.accept(kpiResponse);
+            });
+        }
+    }
+
+    // Mismos datos que getKpiPersonas en formato columnar (?layout=sparse): solo las
+    // celdas usuario x sprint con tareas, referenciadas por indice en usuarios y sprints
+    @Transactional(readOnly = true)
+    public KpiPersonaSparseResponse getKpiPersonasSparse(KpiFiltro filtro) {
+        List<Sprint> sprints = sprints(filtro);
+        Map<Long, Map<Long, Acumulado>> celdas = celdasPorUsuario(filtro, sprints);
+
+        List<KpiPersonaSparseResponse.Ref> sprintRefs = new ArrayList<>(sprints.size());
+        for (Sprint sprint : sprints) {
+            sprintRefs.add(new KpiPersonaSparseResponse.Ref(sprint.getId(), sprint.getNombre()));
+        }
+
+        int maxCeldas = 0;
+        for (Map<Long, Acumulado> celdasUsuario : celdas.values()) {
+            maxCeldas += celdasUsuario.size();
+        }
+        int[] usuarioIndex = new int[maxCeldas];
+        int[] sprintIndex = new int[maxCeldas];
+        double[] horasEstimadas = new double[maxCeldas];
+        double[] horasReales = new double[maxCeldas];
+        int[] tareasCompletadas = new int[maxCeldas];
+        int[] tareasTotales = new int[maxCeldas];
+        int n = 0;
+
+        List<KpiPersonaSparseResponse.Ref> usuarioRefs = new ArrayList<>();
+        try (Stream<Object[]> usuarios = kpiConsultas.streamUsuarios(filtro)) {
+            for (Object[] usuario : (Iterable<Object[]>) usuarios::iterator) {
+                Long usuarioId = (Long) usuario[0];
+                int u = usuarioRefs.size();
+                usuarioRefs.add(new KpiPersonaSparseResponse.Ref(usuarioId, (String) usuario[1]));
+
+                Map<Long, Acumulado> celdasUsuario = celdas.get(usuarioId);
+                if (celdasUsuario == null) {
+                    continue;
+                }
+                for (int s = 0; s < sprints.size(); s++) {
+                    Acumulado a = celdasUsuario.get(sprints.get(s).getId());
+                    if (a == null || a.tareasTotales == 0) {
+                        continue;
+                    }
+                    usuarioIndex[n] = u;
+                    sprintIndex[n] = s;
+                    horasEstimadas[n] = a.horasEstimadas;
+                    horasReales[n] = a.horasReales;
+                    tareasCompletadas[n] = a.tareasCompletadas;
+                    tareasTotales[n] = a.tareasTotales;
+                    n++;
+                }
+            }
+        }
+
+        // Las celdas de usuarios o sprints que ya no existen no se envian
+        KpiPersonaSparseResponse response = new KpiPersonaSparseResponse();
+        response.setUsuarios(usuarioRefs);
+        response.setSprints(sprintRefs);
+        response.setUsuarioIndex(Arrays.copyOf(usuarioIndex, n));
+        response.setSprintIndex(Arrays.copyOf(sprintIndex, n));
+        response.setHorasEstimadas(Arrays.copyOf(horasEstimadas, n));
+        response.setHorasReales(Arrays.copyOf(horasReales, n));
+        response.setTareasCompletadas(Arrays.copyOf(tareasCompletadas, n));
+        response.setTareasTotales(Arrays.copyOf(tareasTotales, n));
+        return response;
+    }
+
+    // usuarioId -> sprintId -> metricas, solo para las celdas con tareas
+    private Map<Long, Map<Long, Acumulado>> celdasPorUsuario(KpiFiltro filtro, List<Sprint> sprints) {
+        Map<Long, Map<Long, Acumulado>> celdas = new HashMap<>();
+        if (kpiCube.isDisponible()) {
+            Set<Long> sprintIds = sprintIds(sprints);
+            kpiCube.forEachCelda(c -> {
+                if (incluye(filtro, sprintIds, c)) {
+                    sumar(celdas, c.getUsuarioId(), c.getSprintId(), c);
+                }
+            });
+        } else {
+            for (Object[] row : kpiConsultas.sumKpisByUsuarioAndSprint(
+                    filtro, estadoCategorias.ids(EstadoCategoria.DONE))) {
+                Acumulado a = celda(celdas, (Long) row[0], (Long) row[1]);
+                a.horasEstimadas = ((Number) row[2]).doubleValue();
+                a.horasReales = ((Number) row[3]).doubleValue();
+                a.tareasCompletadas = ((Number) row[4]).intValue();
+                a.tareasTotales = ((Number) row[5]).intValue();
+            }
+        }
+        return celdas;
+    }
+
+    private List<Sprint> sprints(KpiFiltro filtro) {
+        return kpiConsultas.sprints(filtro);
+    }
+
+    private static Set<Long> sprintIds(List<Sprint> sprints) {
+        Set<Long> ids = new HashSet<>(sprints.size() * 2);
+        for (Sprint sprint : sprints) {
+            ids.add(sprint.getId());
+        }
+        return ids;
+    }
+
+    // Equivalente en memoria de los filtros de las consultas, para las celdas del cubo
+    private static boolean incluye(KpiFiltro filtro, Set<Long> sprintIds, KpiCube.Celda c) {
+        return sprintIds.contains(c.getSprintId())
+            && (filtro.getEquipoId() == null || filtro.getEquipoId() == c.getEquipoId())
+            && (filtro.getUsuarioId() == null || filtro.getUsuarioId() == c.getUsuarioId());
+    }
+
+    private static Acumulado celda(Map<Long, Map<Long, Acumulado>> celdas, long filaId, long sprintId) {
+        return celdas.computeIfAbsent(filaId, id -> new HashMap<>()).computeIfAbsent(sprintId, id -> new Acumulado());
+    }
+
+    private static void sumar(Map<Long, Map<Long, Acumulado>> celdas, long filaId, long sprintId, KpiCube.Celda c) {
+        Acumulado a = celda(celdas, filaId, sprintId);
+        a.horasEstimadas += c.getHorasEstimadas();
+        a.horasReales += c.getHorasReales();
+        a.tareasCompletadas += c.getTareasCompletadas();
+        a.tareasTotales += c.getTareasTotales();
+    }
+}
@@ -0,0 +1,151 @@
+package com.borkacle.service;
+
+import com.borkacle.controller.payload.KpiHistoryResponse;
+import com.borkacle.model.EstadoCategoria;
+import com.borkacle.model.KpiSnapshot;
+import com.borkacle.repository.KpiSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Historico de KPIs: una foto diaria por (sprint, usuario) en KPI_SNAPSHOTS, mas una por sprint
+// para las tareas sin asignar, de la que se sirven las series de tendencia sin recalcular sobre TAREAS.
+@Service
+public class KpiSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(KpiSnapshotService.class);
+
+    public static final String POR_SPRINT = "sprint";
+    public static final String POR_EQUIPO = "equipo";
+    public static final String POR_USUARIO = "usuario";
+
+    @Autowired
+    private KpiSnapshotRepository kpiSnapshotRepository;
+
+    @Autowired
+    private EstadoCategorias estadoCategorias;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${kpi.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Scheduled(cron = "${kpi.snapshot.cron:0 50 23 * * *}")
+    public void snapshotDiario() {
+        if (enabled) {
+            tomarSnapshot(LocalDate.now());
+        }
+    }
+
+    // Reemplaza la foto del dia, asi que se puede repetir sin duplicar filas
+    @Transactional
+    public int tomarSnapshot(LocalDate fecha) {
+        int borradas = kpiSnapshotRepository.deleteByFecha(fecha);
+        int filas = kpiSnapshotRepository.insertSnapshot(fecha, estadoCategorias.ids(EstadoCategoria.DONE));
+        logger.info("KpiSnapshotService: Foto del {} guardada: {} filas ({} reemplazadas)", fecha, filas, borradas);
+        return filas;
+    }
+
+    @Transactional(readOnly = true)
+    public List<KpiHistoryResponse> historial(String agrupar, LocalDate desde, LocalDate hasta,
+                                              Long sprintId, Long equipoId, Long usuarioId) {
+        List<KpiHistoryResponse> result = new ArrayList<>();
+        switch (agrupar) {
+            case POR_SPRINT:
+                for (Object[] row : serie(null, desde, hasta, sprintId, equipoId, usuarioId)) {
+                    result.add(punto(row, null, null, 2));
+                }
+                break;
+            case POR_EQUIPO:
+                for (Object[] row : serie("equipoId", desde, hasta, sprintId, equipoId, usuarioId)) {
+                    result.add(punto(row, (Long) row[2], null, 3));
+                }
+                break;
+            case POR_USUARIO:
+                for (Object[] row : serie("usuarioId", desde, hasta, sprintId, equipoId, usuarioId)) {
+                    result.add(punto(row, null, (Long) row[2], 3));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown grouping: " + agrupar);
+        }
+        return result;
+    }
+
+    // Serie por sprint, o por sprint y la columna de agrupacion (equipoId o usuarioId). Solo se
+    // agregan los predicados de los filtros que llegan, asi con sprintId, equipoId o usuarioId la
+    // consulta es un rango sobre el indice (X_ID, FECHA) y sin ellos un rango sobre FECHA.
+    // [fecha, sprintId, (agrupacion)?, horasEstimadas, horasReales, tareasCompletadas, tareasTotales]
+    private List<Object[]> serie(String agrupacion, LocalDate desde, LocalDate hasta,
+                                 Long sprintId, Long equipoId, Long usuarioId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<KpiSnapshot> k = query.from(KpiSnapshot.class);
+
+        List<Expression<?>> grupo = new ArrayList<>();
+        grupo.add(k.get("fecha"));
+        grupo.add(k.get("sprintId"));
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.between(k.<LocalDate>get("fecha"), desde, hasta));
+        if (agrupacion != null) {
+            grupo.add(k.get(agrupacion));
+            // Las filas sin equipo o sin usuario (tareas sin asignar) solo cuentan en la serie por sprint
+            where.add(cb.isNotNull(k.get(agrupacion)));
+        }
+        if (sprintId != null) {
+            where.add(cb.equal(k.get("sprintId"), sprintId));
+        }
+        if (equipoId != null) {
+            where.add(cb.equal(k.get("equipoId"), equipoId));
+        }
+        if (usuarioId != null) {
+            where.add(cb.equal(k.get("usuarioId"), usuarioId));
+        }
+
+        List<Selection<?>> columnas = new ArrayList<>(grupo);
+        columnas.add(cb.sum(k.<Double>get("horasEstimadas")));
+        columnas.add(cb.sum(k.<Double>get("horasReales")));
+        columnas.add(cb.sum(k.<Integer>get("tareasCompletadas")));
+        columnas.add(cb.sum(k.<Integer>get("tareasTotales")));
+        query.multiselect(columnas);
+        query.where(where.toArray(new Predicate[0]));
+        query.groupBy(grupo);
+        List<Order> orden = new ArrayList<>();
+        for (Expression<?> columna : grupo) {
+            orden.add(cb.asc(columna));
+        }
+        query.orderBy(orden);
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // row: [fecha, sprintId, (equipoId | usuarioId)?, horasEstimadas, horasReales, tareasCompletadas, tareasTotales]
+    private static KpiHistoryResponse punto(Object[] row, Long equipoId, Long usuarioId, int metricas) {
+        KpiHistoryResponse punto = new KpiHistoryResponse();
+        punto.setFecha((LocalDate) row[0]);
+        punto.setSprintId((Long) row[1]);
+        punto.setEquipoId(equipoId);
+        punto.setUsuarioId(usuarioId);
+        punto.setHorasEstimadas(((Number) row[metricas]).doubleValue());
+        punto.setHorasReales(((Number) row[metricas + 1]).doubleValue());
+        punto.setTareasCompletadas(((Number) row[metricas + 2]).intValue());
+        punto.setTareasTotales(((Number) row[metricas + 3]).intValue());
+        return punto;
+    }
+}
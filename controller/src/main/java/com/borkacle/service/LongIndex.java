@@ -0,0 +1,78 @@
+package com.borkacle.service;
+
+import java.util.Arrays;
+
+// Mapa long -> int con direccionamiento abierto sobre dos arreglos primitivos, para
+// traducir ids a indices densos sin un objeto por entrada. No admite borrados.
+final class LongIndex {
+    static final int AUSENTE = -1;
+
+    private long[] claves;
+    private int[] valores;
+    private int size;
+    private int mascara;
+
+    LongIndex(int capacidadEsperada) {
+        int capacidad = 16;
+        while (capacidad < capacidadEsperada * 2) {
+            capacidad <<= 1;
+        }
+        inicializar(capacidad);
+    }
+
+    int get(long clave) {
+        int i = posicion(clave);
+        while (valores[i] != AUSENTE) {
+            if (claves[i] == clave) {
+                return valores[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return AUSENTE;
+    }
+
+    void put(long clave, int valor) {
+        if ((size + 1) * 2 > claves.length) {
+            crecer();
+        }
+        int i = posicion(clave);
+        while (valores[i] != AUSENTE) {
+            if (claves[i] == clave) {
+                valores[i] = valor;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int posicion(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+
+    private void inicializar(int capacidad) {
+        claves = new long[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(valores, AUSENTE);
+        mascara = capacidad - 1;
+        size = 0;
+    }
+
+    private void crecer() {
+        long[] clavesAnteriores = claves;
+        int[] valoresAnteriores = valores;
+        inicializar(claves.length * 2);
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            if (valoresAnteriores[i] != AUSENTE) {
+                put(clavesAnteriores[i], valoresAnteriores[i]);
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.borkacle.service;
 
 import com.borkacle.model.Prioridad;
-import com.borkacle.repository.PrioridadRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -10,20 +9,18 @@ import org.springframework.stereotype.Service;
 public class PrioridadService {
 
     @Autowired
-    private PrioridadRepository prioridadRepository;
+    private DatosReferencia datosReferencia;
 
+    // Served from the reference-data cache: shared instances, read or assign them but do not modify
     public Prioridad findById(Long id) {
         // Use orElseThrow or handle Optional appropriately for API context
-        return prioridadRepository.findById(id)
+        return datosReferencia.prioridad(id)
                 .orElseThrow(() -> new RuntimeException("Prioridad not found with id: " + id));
     }
 
     public Prioridad findByNombre(String nombre) {
-        Prioridad prioridad = prioridadRepository.findByNombre(nombre);
-        if (prioridad == null) {
-            // Consider throwing a specific exception (e.g., NotFoundException) for APIs
-            throw new RuntimeException("Prioridad not found with name: " + nombre);
-        }
-        return prioridad;
+        // Consider throwing a specific exception (e.g., NotFoundException) for APIs
+        return datosReferencia.prioridadPorNombre(nombre)
+                .orElseThrow(() -> new RuntimeException("Prioridad not found with name: " + nombre));
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.borkacle.service;
+
+import com.borkacle.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Rol vigente de cada usuario, para comparar con el rol firmado en el JWT. Cada entrada se
+// relee de USUARIOS cuando tiene mas de jwt.role-cache-ttl-ms, asi un cambio de rol (o un
+// usuario borrado) hecho por otro proceso se aplica a los tokens ya emitidos en ese plazo.
+// UsuarioService invalida la entrada al cambiar el rol, para que se aplique de inmediato.
+@Component
+public class RolesUsuario {
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Value("${jwt.role-cache-ttl-ms:60000}")
+    private long ttlMs;
+
+    private final Map<Long, Entrada> roles = new ConcurrentHashMap<>();
+
+    private static final class Entrada {
+        // null = el usuario ya no existe
+        private final String rol;
+        private final long leido;
+
+        private Entrada(String rol, long leido) {
+            this.rol = rol;
+            this.leido = leido;
+        }
+    }
+
+    // Rol actual del usuario, o vacio si ya no existe
+    public Optional<String> rol(Long usuarioId) {
+        long ahora = System.currentTimeMillis();
+        Entrada e = roles.get(usuarioId);
+        if (e == null || ahora - e.leido > ttlMs) {
+            e = new Entrada(usuarioRepository.findRolById(usuarioId).orElse(null), ahora);
+            roles.put(usuarioId, e);
+        }
+        return Optional.ofNullable(e.rol);
+    }
+
+    public void invalidar(Long usuarioId) {
+        roles.remove(usuarioId);
+    }
+}
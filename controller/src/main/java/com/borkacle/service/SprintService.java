@@ -1,9 +1,11 @@
 package com.borkacle.service;
 
+import com.borkacle.model.EstadoCategoria;
 import com.borkacle.model.Sprint;
 import com.borkacle.repository.SprintRepository;
 import com.borkacle.model.Tarea;
 import com.borkacle.repository.TareaRepository;
+import com.borkacle.repository.TareaTablero;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 // Removed bot specific import: import org.springframework.data.jpa.repository.Query;
@@ -22,9 +24,19 @@ public class SprintService {
     @Autowired // Inject TareaRepository
     private TareaRepository tareaRepository;
 
+    @Autowired // Sprint changes alter the KPI columns
+    private KpiResponseCache kpiResponseCache;
+
+    @Autowired
+    private EstadoCategorias estadoCategorias;
+
+    @Autowired
+    private DatosReferencia datosReferencia;
+
+    // Served from the reference-data cache: a shared instance, read or assign it but do not modify
     public Sprint findById(Long id) {
         // Use orElseThrow or handle Optional appropriately for API context
-        return sprintRepository.findById(id)
+        return datosReferencia.sprint(id)
             .orElseThrow(() -> new RuntimeException("Sprint not found with id: " + id));
     }
 
@@ -46,16 +58,24 @@ public class SprintService {
         sprint.setFechaInicio(fechaInicio);
         sprint.setFechaFin(fechaFin);
         sprint.setEstado("Activo"); // Default state
-        return sprintRepository.save(sprint);
+        Sprint savedSprint = sprintRepository.save(sprint);
+        datosReferencia.invalidarSprints();
+        kpiResponseCache.invalidar();
+        return savedSprint;
     }
 
     public Sprint updateSprint(Long id, String nombre, LocalDate fechaInicio, LocalDate fechaFin, String estado) {
-        Sprint sprint = findById(id); // Uses the findById with exception handling
+        // Managed copy from the database, not the shared cached instance
+        Sprint sprint = sprintRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Sprint not found with id: " + id));
         sprint.setNombre(nombre);
         sprint.setFechaInicio(fechaInicio);
         sprint.setFechaFin(fechaFin);
         sprint.setEstado(estado);
-        return sprintRepository.save(sprint);
+        Sprint savedSprint = sprintRepository.save(sprint);
+        datosReferencia.invalidarSprints();
+        kpiResponseCache.invalidar();
+        return savedSprint;
     }
 
     public void deleteSprint(Long id) {
@@ -64,6 +84,8 @@ public class SprintService {
              throw new RuntimeException("Sprint not found with id: " + id);
         }
         sprintRepository.deleteById(id);
+        datosReferencia.invalidarSprints();
+        kpiResponseCache.invalidar();
     }
 
     // Decide if needed for API. Consider returning a DTO instead of Object[]
@@ -77,8 +99,30 @@ public class SprintService {
         return findById(id);
     }
 
+    // Burndown rows computed by the database, one per sprint day (see SprintRepository.findBurndown)
+    public List<Object[]> getBurndown(Long sprintId) {
+        Sprint sprint = findById(sprintId); // Throws if not found
+        if (sprint.getFechaInicio() == null || sprint.getFechaFin() == null) {
+            return List.of();
+        }
+        return sprintRepository.findBurndown(sprintId, estadoCategorias.ids(EstadoCategoria.DONE));
+    }
+
+    // Velocity of the last `limite` sprints, optionally for one team (see SprintRepository.findVelocity)
+    public List<Object[]> getVelocity(int limite, Long equipoId) {
+        List<Long> doneIds = estadoCategorias.ids(EstadoCategoria.DONE);
+        return equipoId != null
+                ? sprintRepository.findVelocityByEquipo(limite, equipoId, doneIds)
+                : sprintRepository.findVelocity(limite, doneIds);
+    }
+
     // New method to fetch tasks associated with a specific sprint ID
     public List<Tarea> findTasksBySprintId(Long sprintId) {
         return tareaRepository.findBySprintId(sprintId);
     }
-} 
\ No newline at end of file
+
+    // Cards of the sprint board, without entities or the full description (see TareaRepository.findTableroBySprintId)
+    public List<TareaTablero> findTableroBySprintId(Long sprintId) {
+        return tareaRepository.findTableroBySprintId(sprintId);
+    }
+}
@@ -1,16 +1,36 @@
 package com.borkacle.service;
 
 import com.borkacle.model.*; // Use controller models
+import com.borkacle.repository.TareaDetalle;
 import com.borkacle.repository.TareaRepository;
+import com.borkacle.repository.TareaResumen;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 // Removed bot specific import: import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional; // Keep if transaction management is desired
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.SQLException;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 // Copied from bot service
@@ -34,6 +54,25 @@ public class TareaService {
     @Autowired
     private UsuarioService usuarioService;
 
+    @Autowired
+    private KpiCube kpiCube;
+
+    @Autowired
+    private BusquedaTareas busquedaTareas;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // ORA-02291: integrity constraint violated - parent key not found
+    private static final int ORA_CLAVE_PADRE_NO_ENCONTRADA = 2291;
+
+    // Oracle no admite mas de 1000 expresiones en una lista IN
+    private static final int MAX_IN_LIST = 1000;
+
+    // Mismo tamano que hibernate.jdbc.batch_size: se vacia el contexto de persistencia cada lote
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
     // --- Add Task --- //
     @Transactional
     public Tarea createTarea(String titulo, String descripcion, Double tiempoEstimado, Long proyectoId, Long prioridadId) {
@@ -64,6 +103,8 @@ public class TareaService {
             }
 
             Tarea savedTarea = tareaRepository.save(tarea);
+            kpiCube.registrar(savedTarea);
+            busquedaTareas.registrar(savedTarea);
             logger.info("Task saved successfully. ID: {}", savedTarea.getId());
             return savedTarea;
         } catch (Exception e) {
@@ -73,6 +114,54 @@ public class TareaService {
         }
     }
 
+    // --- Add Tasks (batch) --- //
+    // Inserta varias tareas en una sola transaccion. Con el id por secuencia agrupada (TAREAS_SEQ)
+    // Hibernate manda los INSERT en lotes JDBC de batchSize; el estado inicial y las prioridades
+    // se resuelven una vez por lote y no por tarea. Las tareas nuevas no tienen usuario ni sprint,
+    // asi que no aportan nada al cubo de KPIs.
+    @Transactional
+    public List<Tarea> createTareas(List<Tarea> borradores) {
+        logger.info("Creating {} tasks in batch", borradores.size());
+        Estado pendiente = estadoService.findByNombre("Pendiente");
+        Map<Long, Prioridad> prioridades = new HashMap<>();
+        OffsetDateTime ahora = OffsetDateTime.now();
+
+        List<Tarea> creadas = new ArrayList<>(borradores.size());
+        for (int i = 0; i < borradores.size(); i++) {
+            Tarea tarea = borradores.get(i);
+            tarea.setEstado(pendiente);
+            tarea.setFechaCreacion(ahora);
+            tarea.setFechaActualizacion(ahora);
+            if (tarea.getPrioridad() != null) {
+                Long prioridadId = tarea.getPrioridad().getId();
+                if (!prioridades.containsKey(prioridadId)) {
+                    prioridades.put(prioridadId, prioridadOpcional(prioridadId));
+                }
+                tarea.setPrioridad(prioridades.get(prioridadId));
+            }
+            entityManager.persist(tarea);
+            busquedaTareas.registrar(tarea);
+            creadas.add(tarea);
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        logger.info("Batch saved successfully: {} tasks", creadas.size());
+        return creadas;
+    }
+
+    private Prioridad prioridadOpcional(Long prioridadId) {
+        try {
+            return prioridadService.findById(prioridadId);
+        } catch (RuntimeException e) {
+            logger.warn("Priority with ID {} not found, proceeding without priority.", prioridadId);
+            return null;
+        }
+    }
+
     // --- Assign User --- //
     @Transactional
     public Tarea assignUser(Long tareaId, Long usuarioId) {
@@ -85,6 +174,7 @@ public class TareaService {
             tarea.setAsignadoA(usuario);
             tarea.setFechaActualizacion(OffsetDateTime.now());
             Tarea savedTarea = tareaRepository.save(tarea);
+            kpiCube.registrar(savedTarea);
             logger.info("User assigned successfully to task {}", tareaId);
             return savedTarea;
         } catch (RuntimeException e) {
@@ -105,6 +195,7 @@ public class TareaService {
             tarea.setSprint(sprint);
             tarea.setFechaActualizacion(OffsetDateTime.now());
             Tarea savedTarea = tareaRepository.save(tarea);
+            kpiCube.registrar(savedTarea);
             logger.info("Sprint assigned successfully to task {}", tareaId);
             return savedTarea;
         } catch (RuntimeException e) {
@@ -113,6 +204,51 @@ public class TareaService {
         }
     }
 
+    // --- Bulk Update --- //
+    // Asigna sprint, estado, usuario y/o prioridad (los que no sean null) a todas las tareas de
+    // la lista con un UPDATE ... WHERE ID IN (...) por cada bloque de MAX_IN_LIST ids, sin cargar
+    // las tareas. Cada referencia se valida una sola vez. Devuelve el numero de filas actualizadas.
+    @Transactional
+    public int bulkUpdate(Collection<Long> tareaIds, Long sprintId, Long estadoId, Long usuarioId, Long prioridadId) {
+        logger.info("Bulk update of {} tasks: sprint={}, estado={}, usuario={}, prioridad={}",
+                tareaIds.size(), sprintId, estadoId, usuarioId, prioridadId);
+        Sprint sprint = sprintId != null ? sprintService.findById(sprintId) : null;          // Throws if not found
+        Estado estado = estadoId != null ? estadoService.findById(estadoId) : null;
+        Usuario usuario = usuarioId != null ? usuarioService.findById(usuarioId) : null;
+        Prioridad prioridad = prioridadId != null ? prioridadService.findById(prioridadId) : null;
+
+        List<Long> ids = new ArrayList<>(tareaIds);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        OffsetDateTime ahora = OffsetDateTime.now();
+        int actualizadas = 0;
+        for (int desde = 0; desde < ids.size(); desde += MAX_IN_LIST) {
+            List<Long> bloque = ids.subList(desde, Math.min(desde + MAX_IN_LIST, ids.size()));
+            CriteriaUpdate<Tarea> update = cb.createCriteriaUpdate(Tarea.class);
+            Root<Tarea> t = update.from(Tarea.class);
+            if (sprint != null) {
+                update.set(t.<Sprint>get("sprint"), sprint);
+            }
+            if (estado != null) {
+                update.set(t.<Estado>get("estado"), estado);
+            }
+            if (usuario != null) {
+                update.set(t.<Usuario>get("asignadoA"), usuario);
+            }
+            if (prioridad != null) {
+                update.set(t.<Prioridad>get("prioridad"), prioridad);
+            }
+            update.set(t.<OffsetDateTime>get("fechaActualizacion"), ahora);
+            update.set(t.<Long>get("version"), cb.sum(t.<Long>get("version"), 1L));
+            update.where(t.get("id").in(bloque));
+            actualizadas += entityManager.createQuery(update).executeUpdate();
+        }
+
+        // El UPDATE masivo no pasa por las entidades: el cubo se corrige en la siguiente reconciliacion
+        kpiCube.marcarPendiente();
+        logger.info("Bulk update done: {} of {} tasks updated", actualizadas, ids.size());
+        return actualizadas;
+    }
+
     // --- Complete Task --- //
     @Transactional
     public Tarea completeTask(Long tareaId, Double tiempoReal) {
@@ -128,6 +264,7 @@ public class TareaService {
             tarea.setEstado(estado);
 
             Tarea savedTarea = tareaRepository.save(tarea);
+            kpiCube.registrar(savedTarea);
             logger.info("Task {} marked as completed.", tareaId);
             return savedTarea;
         } catch (RuntimeException e) {
@@ -141,6 +278,15 @@ public class TareaService {
     public Tarea updateTask(Long tareaId, String titulo, String descripcion, Double tiempoEstimado,
                           Long estadoId, Long prioridadId, Long proyectoId, Long sprintId,
                           Double tiempoReal, String tipo) {
+        return updateTask(tareaId, titulo, descripcion, tiempoEstimado, estadoId, prioridadId, proyectoId,
+                sprintId, tiempoReal, tipo, null);
+    }
+
+    // Same as above, also assigning the user when usuarioId is given, so an edit is a single write
+    @Transactional
+    public Tarea updateTask(Long tareaId, String titulo, String descripcion, Double tiempoEstimado,
+                          Long estadoId, Long prioridadId, Long proyectoId, Long sprintId,
+                          Double tiempoReal, String tipo, Long usuarioId) {
         logger.info("Updating task: ID={}, titulo={}, descripcion={}, tipo={}", tareaId, titulo, descripcion, tipo);
         try {
             Tarea tarea = tareaRepository.findById(tareaId)
@@ -187,9 +333,14 @@ public class TareaService {
                     logger.warn("Sprint with ID {} not found during update, skipping.", sprintId);
                 }
             }
+            if (usuarioId != null) {
+                tarea.setAsignadoA(usuarioService.findById(usuarioId)); // Throws if not found
+            }
 
             tarea.setFechaActualizacion(OffsetDateTime.now());
             Tarea savedTarea = tareaRepository.save(tarea);
+            kpiCube.registrar(savedTarea);
+            busquedaTareas.registrar(savedTarea);
             logger.info("Task {} updated successfully.", tareaId);
             return savedTarea;
         } catch (RuntimeException e) {
@@ -198,16 +349,205 @@ public class TareaService {
         }
     }
 
+    // --- Patch Task --- //
+    // Escribe solo los campos que no son null con un unico UPDATE, sin leer antes la tarea ni
+    // sus referencias: las llaves foraneas van como proxies de getReference y es la base de datos
+    // la que valida que existan. Tarea inexistente o referencia inexistente -> "not found".
+    @Transactional
+    public void patchTask(Long tareaId, String titulo, String descripcion, Double tiempoEstimado,
+                          Long estadoId, Long prioridadId, Long proyectoId, Long sprintId,
+                          Double tiempoReal, String tipo, Long usuarioId) {
+        logger.info("Patching task {}", tareaId);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Tarea> update = cb.createCriteriaUpdate(Tarea.class);
+        Root<Tarea> t = update.from(Tarea.class);
+        if (titulo != null) update.set(t.<String>get("titulo"), titulo);
+        if (descripcion != null) update.set(t.<String>get("descripcion"), descripcion);
+        if (tiempoEstimado != null) update.set(t.<Double>get("tiempoEstimado"), tiempoEstimado);
+        if (proyectoId != null) update.set(t.<Long>get("proyectoId"), proyectoId);
+        if (tiempoReal != null) update.set(t.<Double>get("tiempoReal"), tiempoReal);
+        if (tipo != null) update.set(t.<String>get("tipo"), tipo);
+        if (estadoId != null) update.set(t.<Estado>get("estado"), entityManager.getReference(Estado.class, estadoId));
+        if (prioridadId != null) update.set(t.<Prioridad>get("prioridad"), entityManager.getReference(Prioridad.class, prioridadId));
+        if (sprintId != null) update.set(t.<Sprint>get("sprint"), entityManager.getReference(Sprint.class, sprintId));
+        if (usuarioId != null) update.set(t.<Usuario>get("asignadoA"), entityManager.getReference(Usuario.class, usuarioId));
+        update.set(t.<OffsetDateTime>get("fechaActualizacion"), OffsetDateTime.now());
+        update.set(t.<Long>get("version"), cb.sum(t.<Long>get("version"), 1L)); // Invalida las versiones que tenga el tablero
+        update.where(cb.equal(t.get("id"), tareaId));
+
+        int filas;
+        try {
+            filas = entityManager.createQuery(update).executeUpdate();
+        } catch (PersistenceException e) {
+            if (esClavePadreNoEncontrada(e)) {
+                throw new RuntimeException("Estado, prioridad, sprint or usuario not found for task " + tareaId, e);
+            }
+            throw e;
+        }
+        if (filas == 0) {
+            throw new RuntimeException("Task not found with id: " + tareaId);
+        }
+
+        if (titulo != null || descripcion != null) {
+            busquedaTareas.marcarPendiente(tareaId);
+        }
+
+        // Sin la entidad no se conoce la nueva contribucion: se corrige en la siguiente reconciliacion
+        if (estadoId != null || sprintId != null || usuarioId != null || tiempoEstimado != null || tiempoReal != null) {
+            kpiCube.marcarPendiente();
+        }
+    }
+
+    private static boolean esClavePadreNoEncontrada(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException && ((SQLException) causa).getErrorCode() == ORA_CLAVE_PADRE_NO_ENCONTRADA) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // --- Other methods potentially useful for APIs --- //
 
     public Optional<Tarea> findById(Long id) {
         return tareaRepository.findById(id);
     }
 
+    // Para lecturas: solo las columnas del detalle, sin cargar la entidad ni sus relaciones
+    @Transactional(readOnly = true)
+    public Optional<TareaDetalle> findDetalleById(Long id) {
+        return tareaRepository.findDetalleById(id);
+    }
+
     public List<Tarea> findAll() {
         return tareaRepository.findAll();
     }
 
+    // Pagina del listado de tareas por keyset sobre (FECHA_CREACION, ID), de la mas reciente a la mas
+    // antigua; las tareas sin fecha de creacion van al final, por id descendente. Sin cursor
+    // (cursorId null) es la primera pagina; con cursorId y cursorFecha null el cursor ya esta en las
+    // tareas sin fecha. Cada consulta lleva solo la condicion del cursor y los filtros que llegan,
+    // para que Oracle recorra IX_TAREAS_CREACION en rango (ver leerResumenes).
+    @Transactional(readOnly = true)
+    public List<TareaResumen> findResumenesPagina(OffsetDateTime cursorFecha, Long cursorId,
+                                                  Long estadoId, Long prioridadId, Long sprintId, Long usuarioId,
+                                                  String tipo, OffsetDateTime desde, OffsetDateTime hasta, int limite) {
+        boolean enSinFecha = cursorId != null && cursorFecha == null;
+        List<TareaResumen> filas = new ArrayList<>(limite);
+        if (!enSinFecha) {
+            filas.addAll(leerResumenes(false, cursorFecha, cursorId, estadoId, prioridadId, sprintId, usuarioId,
+                    tipo, desde, hasta, limite));
+        }
+        // Una tarea sin fecha nunca cumple un filtro por fecha
+        if (filas.size() < limite && desde == null && hasta == null) {
+            filas.addAll(leerResumenes(true, null, enSinFecha ? cursorId : null, estadoId, prioridadId, sprintId,
+                    usuarioId, tipo, null, null, limite - filas.size()));
+        }
+        return filas;
+    }
+
+    // Una consulta del listado: las tareas con fecha (sinFecha false) o las que no la tienen. La
+    // condicion del cursor es (fecha, id) < (cursorFecha, cursorId), con fecha <= cursorFecha aparte
+    // para que acote el rango del indice
+    private List<TareaResumen> leerResumenes(boolean sinFecha, OffsetDateTime cursorFecha, Long cursorId,
+                                             Long estadoId, Long prioridadId, Long sprintId, Long usuarioId,
+                                             String tipo, OffsetDateTime desde, OffsetDateTime hasta, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Tarea> t = query.from(Tarea.class);
+        Join<Tarea, Estado> e = t.join("estado", JoinType.LEFT);
+        Join<Tarea, Prioridad> p = t.join("prioridad", JoinType.LEFT);
+        Join<Tarea, Usuario> u = t.join("asignadoA", JoinType.LEFT);
+        Join<Tarea, Sprint> s = t.join("sprint", JoinType.LEFT);
+        Path<Long> id = t.get("id");
+        Path<OffsetDateTime> fecha = t.get("fechaCreacion");
+        query.multiselect(id.alias("id"), t.get("titulo").alias("titulo"), e.get("nombre").alias("estado"),
+                p.get("nombre").alias("prioridad"), u.get("nombre").alias("asignadoA"), s.get("id").alias("sprintId"),
+                s.get("nombre").alias("sprintNombre"), fecha.alias("fechaCreacion"));
+
+        List<Predicate> where = new ArrayList<>();
+        if (sinFecha) {
+            where.add(cb.isNull(fecha));
+            if (cursorId != null) {
+                where.add(cb.lessThan(id, cursorId));
+            }
+            query.orderBy(cb.desc(id));
+        } else {
+            where.add(cb.isNotNull(fecha));
+            if (cursorId != null) {
+                where.add(cb.lessThanOrEqualTo(fecha, cursorFecha));
+                where.add(cb.or(cb.lessThan(fecha, cursorFecha), cb.lessThan(id, cursorId)));
+            }
+            if (desde != null) {
+                where.add(cb.greaterThanOrEqualTo(fecha, desde));
+            }
+            if (hasta != null) {
+                where.add(cb.lessThan(fecha, hasta));
+            }
+            query.orderBy(cb.desc(fecha), cb.desc(id));
+        }
+        if (estadoId != null) {
+            where.add(cb.equal(t.get("estado").get("id"), estadoId));
+        }
+        if (prioridadId != null) {
+            where.add(cb.equal(t.get("prioridad").get("id"), prioridadId));
+        }
+        if (sprintId != null) {
+            where.add(cb.equal(t.get("sprint").get("id"), sprintId));
+        }
+        if (usuarioId != null) {
+            where.add(cb.equal(t.get("asignadoA").get("id"), usuarioId));
+        }
+        if (tipo != null) {
+            where.add(cb.equal(t.get("tipo"), tipo));
+        }
+        query.where(where.toArray(new Predicate[0]));
+
+        List<TareaResumen> filas = new ArrayList<>();
+        for (Tuple fila : entityManager.createQuery(query).setMaxResults(limite).getResultList()) {
+            filas.add(new ResumenFila(fila));
+        }
+        return filas;
+    }
+
+    // TareaResumen leido de una consulta Criteria (las proyecciones de interfaz son solo de Spring Data)
+    private static final class ResumenFila implements TareaResumen {
+        private final Tuple fila;
+
+        private ResumenFila(Tuple fila) {
+            this.fila = fila;
+        }
+
+        @Override public Long getId() { return fila.get("id", Long.class); }
+        @Override public String getTitulo() { return fila.get("titulo", String.class); }
+        @Override public String getEstado() { return fila.get("estado", String.class); }
+        @Override public String getPrioridad() { return fila.get("prioridad", String.class); }
+        @Override public String getAsignadoA() { return fila.get("asignadoA", String.class); }
+        @Override public Long getSprintId() { return fila.get("sprintId", Long.class); }
+        @Override public String getSprintNombre() { return fila.get("sprintNombre", String.class); }
+        @Override public OffsetDateTime getFechaCreacion() { return fila.get("fechaCreacion", OffsetDateTime.class); }
+    }
+
+    // Resumenes de las tareas indicadas, en el mismo orden que los ids (las que ya no existen se omiten)
+    @Transactional(readOnly = true)
+    public List<TareaResumen> findResumenesByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, TareaResumen> porId = new HashMap<>();
+        for (TareaResumen resumen : tareaRepository.findResumenesByIds(ids)) {
+            porId.put(resumen.getId(), resumen);
+        }
+        List<TareaResumen> ordenados = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TareaResumen resumen = porId.get(id);
+            if (resumen != null) {
+                ordenados.add(resumen);
+            }
+        }
+        return ordenados;
+    }
+
     public List<Tarea> getTareasBySprint(Long sprintId) {
         // Validate sprint exists first?
         return tareaRepository.findBySprintId(sprintId);
@@ -220,7 +560,10 @@ public class TareaService {
         logger.info("Saving task: ID={}", tarea.getId());
         try {
             tarea.setFechaActualizacion(OffsetDateTime.now());
-            return tareaRepository.save(tarea);
+            Tarea savedTarea = tareaRepository.save(tarea);
+            kpiCube.registrar(savedTarea);
+            busquedaTareas.registrar(savedTarea);
+            return savedTarea;
         } catch (Exception e) {
             logger.error("Error saving task: {}", e.getMessage(), e);
             throw e;
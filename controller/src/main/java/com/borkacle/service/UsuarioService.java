@@ -15,13 +15,21 @@ public class UsuarioService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired // User changes alter the KPI rows
+    private KpiResponseCache kpiResponseCache;
+
+    @Autowired
+    private RolesUsuario rolesUsuario;
+
     // Keep if Telegram ID is relevant for the controller
     public Optional<Usuario> findByTelegramId(String telegramId) {
         return usuarioRepository.findByTelegramId(telegramId);
     }
 
     public Usuario save(Usuario usuario) {
-        return usuarioRepository.save(usuario);
+        Usuario savedUsuario = usuarioRepository.save(usuario);
+        kpiResponseCache.invalidar();
+        return savedUsuario;
     }
 
     public Optional<Usuario> findByEmail(String email) {
@@ -79,6 +87,11 @@ public class UsuarioService {
 
         // Add other updatable fields here...
 
-        return usuarioRepository.save(usuario); // Save updates
+        Usuario savedUsuario = usuarioRepository.save(usuario); // Save updates
+        kpiResponseCache.invalidar();
+        if (rol != null) {
+            rolesUsuario.invalidar(id); // Los tokens ya emitidos toman el rol nuevo
+        }
+        return savedUsuario;
     }
 } 
\ No newline at end of file
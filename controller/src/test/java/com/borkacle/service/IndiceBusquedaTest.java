@@ -0,0 +1,141 @@
+package com.borkacle.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceBusquedaTest {
+
+    private static List<Long> ids(List<IndiceBusqueda.Resultado> resultados) {
+        List<Long> ids = new ArrayList<>();
+        for (IndiceBusqueda.Resultado r : resultados) {
+            ids.add(r.tareaId);
+        }
+        return ids;
+    }
+
+    @Test
+    void coincidenciaExacta() {
+        IndiceBusqueda indice = new IndiceBusqueda(4);
+        indice.poner(1, "Error de login", "El usuario no puede entrar");
+        indice.poner(2, "Reporte semanal", "Resumen de horas");
+        indice.poner(3, "Pantalla de inicio", "Falla el login con correo");
+
+        List<Long> encontrados = ids(indice.buscar("login", null, 10));
+
+        // La coincidencia en el titulo pesa mas que en la descripcion
+        assertEquals(List.of(1L, 3L), encontrados);
+        assertEquals(List.of(), ids(indice.buscar("inexistente", null, 10)));
+    }
+
+    @Test
+    void todosLosTerminosSinAcentosNiMayusculas() {
+        IndiceBusqueda indice = new IndiceBusqueda(4);
+        indice.poner(1, "Configuración del servidor", null);
+        indice.poner(2, "Configuracion del cliente", null);
+        indice.poner(3, "Servidor caido", null);
+
+        assertEquals(List.of(1L), ids(indice.buscar("SERVIDOR configuracion", null, 10)));
+    }
+
+    @Test
+    void coincidenciaPorPrefijo() {
+        IndiceBusqueda indice = new IndiceBusqueda(4);
+        indice.poner(1, "Configuracion de correo", null);
+        indice.poner(2, "Conf anual", null);
+        indice.poner(3, "Reunion de equipo", null);
+
+        List<Long> encontrados = ids(indice.buscar("conf", null, 10));
+
+        // La palabra completa gana a la expansion del prefijo
+        assertEquals(List.of(2L, 1L), encontrados);
+        // Un solo caracter no se expande
+        assertEquals(List.of(), ids(indice.buscar("c", null, 10)));
+    }
+
+    @Test
+    void prefijoEligeLosTerminosMasFrecuentes() {
+        IndiceBusqueda indice = new IndiceBusqueda(128);
+        // Cien terminos raros que van antes de "abrir" en el diccionario
+        for (int i = 0; i < 100; i++) {
+            indice.poner(1000 + i, String.format("ab%03d", i), null);
+        }
+        for (long id = 1; id <= 5; id++) {
+            indice.poner(id, "Abrir ticket", null);
+        }
+
+        List<Long> encontrados = ids(indice.buscar("ab ticket", null, 10));
+
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), encontrados);
+    }
+
+    @Test
+    void tareaQuitadaNoAparece() {
+        IndiceBusqueda indice = new IndiceBusqueda(4);
+        indice.poner(1, "Migrar base de datos", null);
+        indice.poner(2, "Migrar correo", null);
+
+        indice.quitar(1);
+
+        assertEquals(1, indice.size());
+        assertEquals(List.of(2L), ids(indice.buscar("migrar", null, 10)));
+        // Quitar dos veces, o una tarea que no existe, no cambia nada
+        indice.quitar(1);
+        indice.quitar(99);
+        assertEquals(1, indice.size());
+    }
+
+    @Test
+    void tareaReindexadaSoloConElTextoNuevo() {
+        IndiceBusqueda indice = new IndiceBusqueda(4);
+        indice.poner(1, "Texto viejo", null);
+        indice.poner(1, "Texto nuevo", null);
+
+        assertEquals(1, indice.size());
+        assertEquals(List.of(), ids(indice.buscar("viejo", null, 10)));
+        assertEquals(List.of(1L), ids(indice.buscar("nuevo", null, 10)));
+        // Una sola vez aunque la version anterior siga en las listas del termino
+        assertEquals(List.of(1L), ids(indice.buscar("texto", null, 10)));
+
+        // Reindexar una tarea quitada la vuelve a mostrar
+        indice.quitar(1);
+        indice.poner(1, "Texto restaurado", null);
+        assertEquals(List.of(1L), ids(indice.buscar("restaurado", null, 10)));
+    }
+
+    @Test
+    void cursorRecorreTodosLosResultadosSinRepetir() {
+        IndiceBusqueda indice = new IndiceBusqueda(64);
+        for (long id = 1; id <= 47; id++) {
+            // Varios documentos con el mismo puntaje, para probar el desempate por id
+            String descripcion = id % 3 == 0 ? "reporte reporte" : "reporte";
+            indice.poner(id, "Tarea " + id, descripcion);
+        }
+        List<IndiceBusqueda.Resultado> todos = indice.buscar("reporte", null, 100);
+        assertEquals(47, todos.size());
+
+        List<IndiceBusqueda.Resultado> paginado = new ArrayList<>();
+        IndiceBusqueda.Resultado cursor = null;
+        while (true) {
+            List<IndiceBusqueda.Resultado> pagina = indice.buscar("reporte", cursor, 10);
+            if (pagina.isEmpty()) {
+                break;
+            }
+            paginado.addAll(pagina);
+            cursor = pagina.get(pagina.size() - 1);
+        }
+
+        assertEquals(ids(todos), ids(paginado));
+        Set<Long> unicos = new HashSet<>(ids(paginado));
+        assertEquals(47, unicos.size());
+        for (int i = 1; i < paginado.size(); i++) {
+            assertTrue(IndiceBusqueda.ORDEN.compare(paginado.get(i - 1), paginado.get(i)) < 0);
+        }
+    }
+}
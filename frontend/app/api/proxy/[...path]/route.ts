@@ -40,6 +40,9 @@ async function handleProxyRequest(req: NextRequest) {
       headersToForward.append(key, value);
     }
   });
+  // X-Forwarded-For is passed on as received: the load balancer appends the client IP as the
+  // last entry, and the controller reads the client IP from it because this pod is a trusted
+  // proxy (server.tomcat.remoteip.internal-proxies)
 
   //console.log(`Headers to forward: ${JSON.stringify(Object.fromEntries(headersToForward.entries()))}`);
 
@@ -65,9 +65,15 @@ export function Backlog() {
     try {
       setLoading(true)
       setError(null)
-      const response = await api.get('/api/tasks')
-      const data = response.data
-      
+      // La API devuelve paginas; se siguen los cursores hasta tener todas las tareas
+      const data: any[] = []
+      let cursor: string | undefined
+      do {
+        const response = await api.get('/api/tasks', { params: { limit: 500, cursor } })
+        data.push(...response.data)
+        cursor = response.headers['x-next-cursor']
+      } while (cursor)
+
       console.log('API Response:', data)
       
       const allTasks: Task[] = data.map((task: any) => ({
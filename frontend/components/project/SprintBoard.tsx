@@ -140,10 +140,18 @@ export function SprintBoard({ sprintId, onBack }: SprintBoardProps) {
     try {
       const taskId = movedTask.id;
       const estadoId = getEstadoIdFromStatus(destinationColumnId);
-      await api.put(`/api/tareas/${taskId}/estado`, { estadoId });
+      const response = await api.put(`/api/tareas/${taskId}/estado`, { estadoId, version: movedTask.version });
+      if (response?.data?.version !== undefined) {
+        movedTask.version = response.data.version
+      }
       // Opcional: recargar tareas del sprint para mantener sincronizado
       // await fetchSprintTasks();
-    } catch (error) {
+    } catch (error: any) {
+      if (error?.response?.status === 409) {
+        setError("Otra persona modificó esta tarea. El tablero se actualizó con los cambios más recientes.")
+        fetchSprintTasks()
+        return
+      }
       setError("No se pudo actualizar el estado de la tarea. Los cambios podrían no guardarse.")
     }
   }
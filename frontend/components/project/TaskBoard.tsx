@@ -217,10 +217,19 @@ export function TaskBoard() {
       const taskId = movedTask.id;
       // Obtener el ID de estado correspondiente al status del frontend
       const estadoId = getEstadoIdFromStatus(destinationColumnId);
-      // Llamar al endpoint para actualizar el estado
-      await api.put(`/api/tareas/${taskId}/estado`, { estadoId });
+      // Llamar al endpoint para actualizar el estado (con la version leida, para detectar conflictos)
+      const response = await api.put(`/api/tareas/${taskId}/estado`, { estadoId, version: movedTask.version });
+      if (response?.data?.version !== undefined) {
+        movedTask.version = response.data.version;
+      }
       console.log(`Tarea ${taskId} actualizada al estado ${estadoId} (${destinationColumnId})`);
-    } catch (error) {
+    } catch (error: any) {
+      if (error?.response?.status === 409) {
+        // Otra persona movio la tarea primero: recargar el tablero con el estado real
+        setError("Otra persona modificó esta tarea. El tablero se actualizó con los cambios más recientes.");
+        fetchTareas();
+        return;
+      }
       console.error('Error al actualizar el estado de la tarea:', error);
       setError("No se pudo actualizar el estado de la tarea. Los cambios podrían no guardarse.");
     }
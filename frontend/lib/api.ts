@@ -1,5 +1,6 @@
 import axios from 'axios';
 import Cookies from 'js-cookie';
+import { jwtDecode } from 'jwt-decode';
 
 // Get the API URL from environment variables or use default
 // It is not possible to use the CONTROLLER_SERVICE_URL because it is not available
@@ -17,12 +18,66 @@ const api = axios.create({
   withCredentials: true, // Important for CORS with credentials
 });
 
+// Access tokens are renewed from the refresh token that /api/auth/login sets as an HttpOnly
+// cookie (path /api/auth), so an expired access token doesn't send the user back to the login
+// page (or cost a password check). Each refresh replaces the cookie.
+const REFRESH_MARGIN_SECONDS = 60;
+let refreshInFlight: Promise<string | null> | null = null;
+
+const isAuthRequest = (url?: string) => !!url && url.includes('/api/auth/');
+
+// Seconds since epoch at which the token expires, or 0 if it can't be read
+const tokenExpiry = (token: string): number => {
+  try {
+    return jwtDecode<{ exp?: number }>(token).exp || 0;
+  } catch (error) {
+    return 0;
+  }
+};
+
+// The refresh cookie can't be read from here; a stored user means a login that has not been
+// logged out or rejected, so there is a refresh session worth trying
+export const hasRefreshSession = (): boolean =>
+  typeof window !== 'undefined' && !!localStorage.getItem('user');
+
+// One refresh at a time; concurrent requests wait for the same new token
+export const refreshAccessToken = (): Promise<string | null> => {
+  if (!hasRefreshSession()) {
+    return Promise.resolve(null);
+  }
+  if (!refreshInFlight) {
+    // Plain axios: the refresh call must not go through these interceptors
+    refreshInFlight = axios
+      .post(`${API_URL}/api/auth/refresh`, null, { timeout: 20000, withCredentials: true })
+      .then((response) => {
+        const token: string = response.data.token;
+        Cookies.set('authToken', token, { expires: 1, path: '/', sameSite: 'Lax' });
+        return token;
+      })
+      .catch((error) => {
+        // Rejected refresh token: the session is over (a network error may be retried)
+        if (error.response && error.response.status === 401) {
+          localStorage.removeItem('user');
+        }
+        return null;
+      })
+      .finally(() => {
+        refreshInFlight = null;
+      });
+  }
+  return refreshInFlight;
+};
+
 // Add a request interceptor to include auth token
 api.interceptors.request.use(
-  (config) => {
+  async (config) => {
     // Add authorization token to headers if available
     if (typeof window !== 'undefined') {
-      const token = Cookies.get('authToken');
+      let token = Cookies.get('authToken');
+      if (!isAuthRequest(config.url) && hasRefreshSession() &&
+          (!token || tokenExpiry(token) - Date.now() / 1000 < REFRESH_MARGIN_SECONDS)) {
+        token = (await refreshAccessToken()) || token;
+      }
       if (token) {
         config.headers.Authorization = `Bearer ${token}`;
       }
@@ -38,9 +93,20 @@ api.interceptors.request.use(
 // Add a response interceptor to handle errors
 api.interceptors.response.use(
   (response) => response,
-  (error) => {
+  async (error) => {
     console.error('API request failed:', error?.response?.data || error.message || error);
     
+    // A 401 with a refresh token available: get a new access token and retry once
+    if (error.response && error.response.status === 401 && error.config &&
+        !error.config.__isAuthRetry && !isAuthRequest(error.config.url) && hasRefreshSession()) {
+      error.config.__isAuthRetry = true;
+      const token = await refreshAccessToken();
+      if (token) {
+        error.config.headers.Authorization = `Bearer ${token}`;
+        return api(error.config);
+      }
+    }
+    
     // Handle authentication errors (401)
     if (error.response && error.response.status === 401) {
       // Clear auth cookies and redirect to login if not already on login page
@@ -1,4 +1,4 @@
-import api from './api';
+import api, { hasRefreshSession } from './api';
 import { jwtDecode } from 'jwt-decode';
 import Cookies from 'js-cookie';
 
@@ -13,6 +13,8 @@ export interface User {
 // Define JWT decoded payload type
 interface JwtPayload {
   sub: string; // username/email
+  uid: number; // user id
+  rol: string; // role at the time the token was issued
   exp: number;
   iat: number;
 }
@@ -36,6 +38,8 @@ const getAuthToken = (): string | null => {
 // Login function
 export const login = async (email: string, password: string): Promise<User> => {
   try {
+    // The controller also sets the refresh token as an HttpOnly cookie, which lib/api sends
+    // to /api/auth/refresh; it is never visible to this code
     const response = await api.post('/api/auth/login', { email, password });
     const { token, id, email: userEmail, nombre, rol } = response.data;
     
@@ -99,7 +103,8 @@ export const isAuthenticated = (): boolean => {
   
   const token = getAuthToken();
   if (!token) {
-    return false;
+    // The access token cookie expired; the next API call renews it from the refresh token
+    return hasRefreshSession();
   }
   
   try {
@@ -108,6 +113,10 @@ export const isAuthenticated = (): boolean => {
     
     // Check if token is expired
     if (decoded.exp < currentTime) {
+      // The next API call renews it from the refresh token
+      if (hasRefreshSession()) {
+        return true;
+      }
       // Token expired, clean up
       logout();
       return false;
@@ -10,6 +10,7 @@ export interface TaskAssignee {
 
 export interface Task {
   id: string
+  version?: number // Optimistic-lock version from the board endpoints
   title: string
   titulo?: string
   type: TaskType